@@ -0,0 +1,237 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/16/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Autopilot for any subset of the suppressors.
+//
+// On every planning tick the candidate targets are the walkable cells
+// that hold an oncogenic signal (moving there scores a kill) and the
+// walkable proteins those signals move to next (waiting there kills
+// the signal when it arrives). The cost of sending suppressor s to
+// target t is the walking distance plus a weight times the hops from t
+// to the nucleus, so urgent signals close to the DNA are preferred.
+// Suppressors are assigned to targets with the Hungarian method and
+// take one step along the precomputed walking distances.
+//
+// All work arrays are allocated once, so planning creates no garbage.
+//--------------------------------------------------------------------
+
+class Autopilot
+{
+    private ProteinElement [][] network;   // reference to Signaling network
+    private DistanceField distances;       // hops to nucleus and walking distances
+    private Suppressor [] suppressors;     // all suppressors
+    private boolean [] enabled;            // suppressors under autopilot
+
+    private int rows, cols;
+
+    private int [] targets;        // candidate target cells
+    private int [] targetHops;     // hops to nucleus of each target
+    private int [] seen;           // planning stamp per cell to avoid duplicate targets
+    private int    stamp;
+
+    private int [] agents;         // enabled suppressor indices for this plan
+    private double [] cost;        // assignment cost matrix (agents x columns)
+    private double [] u, v, minv;  // Hungarian method potentials and work arrays
+    private int [] match, way;
+    private boolean [] used;
+
+    public static final double URGENCY_WEIGHT = 3.0;   // cost per hop to nucleus
+    public static final double STAY_COST      = 1e6;   // cost of staying put (no target)
+    public static final double UNREACHABLE    = 1e9;   // cost of an unreachable target
+
+    public Autopilot(ProteinElement [][] ntk, DistanceField dist, Suppressor [] supp)
+    {
+        network     = ntk;
+        distances   = dist;
+        suppressors = supp;
+        rows = network.length;
+        cols = network[0].length;
+
+        int n = suppressors.length;
+        int maxCols = rows * cols + n;
+
+        enabled    = new boolean [n];
+        agents     = new int [n];
+        targets    = new int [rows * cols];
+        targetHops = new int [rows * cols];
+        seen       = new int [rows * cols];
+
+        cost  = new double [n * maxCols];
+        u     = new double [n + 1];
+        v     = new double [maxCols + 1];
+        minv  = new double [maxCols + 1];
+        match = new int [maxCols + 1];
+        way   = new int [maxCols + 1];
+        used  = new boolean [maxCols + 1];
+    }
+
+    public void setEnabled(int i, boolean value) { enabled[i] = value; }
+    public boolean isEnabled(int i)              { return enabled[i];  }
+
+    public boolean anyEnabled()
+    {
+        for (int i = 0; i < enabled.length; i++)
+            if (enabled[i]) return true;
+        return false;
+    }
+
+
+    //------------------------------------------------------------------
+    // Plan one move for every enabled suppressor. moves[i] receives a
+    // Suppressor direction (NONE for suppressors not under autopilot)
+    //------------------------------------------------------------------
+
+    public void plan(int [] moves)
+    {
+        int n = 0;
+        for (int i = 0; i < suppressors.length; i++)
+        {
+            moves[i] = Suppressor.NONE;
+            if (enabled[i]) agents[n++] = i;
+        }
+        if (n == 0) return;
+
+        int m = collectTargets();
+        int columns = m + n;   // one "stay" column per agent
+
+        for (int a = 0; a < n; a++)
+        {
+            Suppressor s = suppressors[agents[a]];
+            for (int t = 0; t < m; t++)
+            {
+                int cell = targets[t];
+                int d = distances.walkDistance(s.getRow(), s.getCol(), cell / cols, cell % cols);
+                cost[a * columns + t] = d < 0 ? UNREACHABLE : d + URGENCY_WEIGHT * targetHops[t];
+            }
+            for (int t = m; t < columns; t++)
+                cost[a * columns + t] = STAY_COST;
+        }
+
+        assign(n, columns);
+
+        for (int col = 1; col <= columns; col++)
+        {
+            int a = match[col] - 1;
+            if (a < 0 || col > m || cost[a * columns + col - 1] >= UNREACHABLE) continue;
+
+            int cell = targets[col - 1];
+            moves[agents[a]] = stepToward(suppressors[agents[a]], cell / cols, cell % cols);
+        }
+    }
+
+    // Apply one planned move to every enabled suppressor
+    public void step(int [] moves)
+    {
+        plan(moves);
+        for (int i = 0; i < suppressors.length; i++)
+            suppressors[i].move(moves[i]);
+    }
+
+
+    //------------------------------------------------------------------
+    // Candidate targets: walkable signal cells and their walkable
+    // next-hop proteins, with hops to the nucleus
+    //------------------------------------------------------------------
+
+    private int collectTargets()
+    {
+        stamp++;
+        int m = 0;
+
+        for (int row = 0; row < rows; row++)
+        {
+            for (int col = 0; col < cols; col++)
+            {
+                ProteinElement pe = network[row][col];
+                if (!pe.hasOncogenicSignal() || !pe.getActive()) continue;
+
+                m = addTarget(row, col, m);
+
+                for (int i = 0; i < pe.getConnectionCount(); i++)
+                {
+                    ConnectionElement ce = pe.getConnection(i);
+                    m = addTarget(ce.getToRow(), ce.getToCol(), m);
+                }
+            }
+        }
+        return m;
+    }
+
+    private int addTarget(int row, int col, int m)
+    {
+        int cell = row * cols + col;
+        if (seen[cell] == stamp || !distances.isWalkable(row, col)) return m;
+
+        int hops = distances.hopsToNucleus(row, col);
+        if (hops == DistanceField.UNREACHABLE) return m;
+
+        seen[cell] = stamp;
+        targets[m]    = cell;
+        targetHops[m] = hops;
+        return m + 1;
+    }
+
+    // Direction of one step from s toward (row, col) along a shortest walk
+    // (neighbours off the grid have walk distance -1 and are never taken)
+    private int stepToward(Suppressor s, int row, int col)
+    {
+        int r = s.getRow(), c = s.getCol();
+        int d = distances.walkDistance(r, c, row, col);
+        if (d <= 0) return Suppressor.NONE;
+
+        if (distances.walkDistance(r - 1, c, row, col) == d - 1) return Suppressor.UP;
+        if (distances.walkDistance(r + 1, c, row, col) == d - 1) return Suppressor.DOWN;
+        if (distances.walkDistance(r, c - 1, row, col) == d - 1) return Suppressor.LEFT;
+        if (distances.walkDistance(r, c + 1, row, col) == d - 1) return Suppressor.RIGHT;
+        return Suppressor.NONE;
+    }
+
+
+    //------------------------------------------------------------------
+    // Hungarian method for an n x m cost matrix with n <= m. On return
+    // match[col] is the 1-based row assigned to column col (0 if none)
+    //------------------------------------------------------------------
+
+    private void assign(int n, int m)
+    {
+        for (int i = 0; i <= n; i++) u[i] = 0;
+        for (int j = 0; j <= m; j++) { v[j] = 0; match[j] = 0; }
+
+        for (int i = 1; i <= n; i++)
+        {
+            match[0] = i;
+            int j0 = 0;
+            for (int j = 0; j <= m; j++) { minv[j] = Double.MAX_VALUE; used[j] = false; }
+
+            do {
+                used[j0] = true;
+                int i0 = match[j0], j1 = 0;
+                double delta = Double.MAX_VALUE;
+
+                for (int j = 1; j <= m; j++)
+                {
+                    if (used[j]) continue;
+                    double cur = cost[(i0 - 1) * m + j - 1] - u[i0] - v[j];
+                    if (cur < minv[j]) { minv[j] = cur; way[j] = j0; }
+                    if (minv[j] < delta) { delta = minv[j]; j1 = j; }
+                }
+                for (int j = 0; j <= m; j++)
+                {
+                    if (used[j]) { u[match[j]] += delta; v[j] -= delta; }
+                    else         minv[j] -= delta;
+                }
+                j0 = j1;
+            } while (match[j0] != 0);
+
+            do {
+                int j1 = way[j0];
+                match[j0] = match[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+    }
+}
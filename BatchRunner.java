@@ -0,0 +1,56 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/24/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongConsumer;
+
+//--------------------------------------------------------------------
+// Runs a batch of independent jobs, numbered begin .. end-1, on a
+// ForkJoinPool. The range is split in halves until at most 'grain'
+// jobs are left, which one worker then runs in order. Work stealing
+// keeps all cores busy even when jobs take very different times.
+//
+// Used by the tournament, the parameter sweep and the knockout
+// analysis. Per-thread state (games, simulators) stays with the
+// caller, usually in a ThreadLocal the job reads.
+//--------------------------------------------------------------------
+
+class BatchRunner
+{
+    public static void run(ForkJoinPool pool, long begin, long end, int grain, LongConsumer job)
+    {
+        if (begin < end) pool.invoke(new BatchTask(begin, end, Math.max(1, grain), job));
+    }
+
+    static class BatchTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private long begin, end;     // job numbers
+        private int  grain;
+        private LongConsumer job;
+
+        BatchTask(long Begin, long End, int Grain, LongConsumer Job)
+        {
+            begin = Begin;
+            end   = End;
+            grain = Grain;
+            job   = Job;
+        }
+
+        protected void compute()
+        {
+            if (end - begin <= grain)
+            {
+                for (long i = begin; i < end; i++) job.accept(i);
+                return;
+            }
+            long mid = (begin + end) >>> 1;
+            invokeAll(new BatchTask(begin, mid, grain, job), new BatchTask(mid, end, grain, job));
+        }
+    }
+}
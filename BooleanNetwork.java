@@ -0,0 +1,485 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 7/2/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+//--------------------------------------------------------------------
+// Attractors of the signaling network seen as a Boolean network.
+//
+// Every protein is ON or OFF. Receptors are held at an input value; all
+// other proteins are updated synchronously: ON in the next step if at
+// least one stimulating input is ON and no inhibiting input is ON.
+// From every receptor input combination (and optionally some random
+// start states per combination) the trajectory is followed until it
+// reaches a state seen before, which identifies its attractor (a fixed
+// point or a cycle).
+//
+// A state is packed into 'words' longs (bit v = protein v). Visited
+// states are kept in an open-addressing hash table outside the Java
+// heap (a direct ByteBuffer), so millions of states cost no garbage
+// collection. Input combinations are split over the ForkJoin pool;
+// each worker has its own table, and attractors are merged by their
+// smallest state at the end.
+//--------------------------------------------------------------------
+
+class BooleanNetwork
+{
+    private SignalingGraph graph;
+    private int   n;              // proteins
+    private int   words;          // longs per state
+    private int [] receptors;     // receptor nodes (inputs)
+    private int [] inputs;        // input nodes of every protein (CSR by target)
+    private int [] inputStart;
+    private boolean [] inputStim; // stimulating or inhibiting input
+
+    //------------------------------------------------------------------
+    // One attractor: its states, how many starts reach it
+    //------------------------------------------------------------------
+
+    static class Attractor
+    {
+        long [] states;        // cycle states, words longs each, starting at the smallest
+        int     length;        // number of states in the cycle
+        long    basin;         // starts (input combination x start state) that reach it
+        long    firstInputs;   // first receptor input combination that reaches it
+    }
+
+    public BooleanNetwork(SignalingGraph g)
+    {
+        graph = g;
+        n     = g.getNodeCount();
+        words = (n + 63) >>> 6;
+
+        int r = 0;
+        for (int v = 0; v < n; v++) if (g.isReceptor(v)) r++;
+        receptors = new int [r];
+        r = 0;
+        for (int v = 0; v < n; v++) if (g.isReceptor(v)) receptors[r++] = v;
+
+        inputStart = new int [n + 1];
+        inputs     = new int [g.getEdgeCount()];
+        inputStim  = new boolean [g.getEdgeCount()];
+        for (int v = 0; v < n; v++)
+        {
+            inputStart[v] = g.firstInEdge(v);
+            for (int i = g.firstInEdge(v); i < g.firstInEdge(v + 1); i++)
+            {
+                int e = g.getInEdge(i);
+                inputs[i]    = g.getSource(e);
+                inputStim[i] = g.isStimulating(e);
+            }
+        }
+        inputStart[n] = g.getEdgeCount();
+    }
+
+    public int getWords()          { return words; }
+    public int getReceptorCount()  { return receptors.length; }
+    public int getReceptor(int i)  { return receptors[i];     }
+
+    // Is protein v ON in the state stored at 'off' in 's'?
+    public static boolean isOn(long [] s, int off, int v)
+    {
+        return (s[off + (v >>> 6)] & (1L << v)) != 0;
+    }
+
+    // Next state of 'cur' (at curOff) into 'nxt' (at nxtOff)
+    public void next(long [] cur, int curOff, long [] nxt, int nxtOff)
+    {
+        for (int w = 0; w < words; w++) nxt[nxtOff + w] = 0;
+
+        for (int v = 0; v < n; v++)
+        {
+            boolean on;
+            if (graph.isReceptor(v))
+            {
+                on = isOn(cur, curOff, v);
+            }
+            else
+            {
+                boolean stim = false, inhib = false;
+                for (int i = inputStart[v]; i < inputStart[v + 1]; i++)
+                {
+                    if (!isOn(cur, curOff, inputs[i])) continue;
+                    if (inputStim[i]) stim = true;
+                    else              inhib = true;
+                }
+                on = stim && !inhib;
+            }
+            if (on) nxt[nxtOff + (v >>> 6)] |= 1L << v;
+        }
+    }
+
+
+    //------------------------------------------------------------------
+    // Find the attractors reached from every input combination (or
+    // 'samples' random combinations if there are more), with
+    // 'randomStarts' random start states per combination in addition
+    // to the all-OFF start
+    //------------------------------------------------------------------
+
+    public ArrayList<Attractor> findAttractors(ForkJoinPool pool, long samples, int randomStarts, long seed)
+    {
+        long combos = receptors.length < 63 ? 1L << receptors.length : Long.MAX_VALUE;
+        boolean sampled = combos > samples;
+        long total = sampled ? samples : combos;
+
+        long grain = Math.max(64, total / (4 * pool.getParallelism()));
+        HashMap<String, Attractor> found = pool.invoke(new SearchTask(0, total, grain, sampled, randomStarts, seed));
+        ArrayList<Attractor> list = new ArrayList<Attractor>(found.values());
+        list.sort((a, b) -> Long.compare(b.basin, a.basin));
+        return list;
+    }
+
+    class SearchTask extends RecursiveTask<HashMap<String, Attractor>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private long begin, end;      // input combination numbers
+        private long grain;           // combinations searched by one worker
+        private boolean sampled;      // combinations are random samples
+        private int randomStarts;
+        private long seed;
+
+        SearchTask(long Begin, long End, long Grain, boolean Sampled, int starts, long Seed)
+        {
+            begin = Begin; end = End; grain = Grain;
+            sampled = Sampled; randomStarts = starts; seed = Seed;
+        }
+
+        protected HashMap<String, Attractor> compute()
+        {
+            if (end - begin > grain)
+            {
+                long mid = (begin + end) >>> 1;
+                SearchTask left = new SearchTask(begin, mid, grain, sampled, randomStarts, seed);
+                left.fork();
+                HashMap<String, Attractor> right = new SearchTask(mid, end, grain, sampled, randomStarts, seed).compute();
+                return merge(left.join(), right);
+            }
+            return new Search(seed ^ begin).run(begin, end, sampled, randomStarts);
+        }
+    }
+
+    private static HashMap<String, Attractor> merge(HashMap<String, Attractor> a, HashMap<String, Attractor> b)
+    {
+        for (Attractor x : b.values())
+        {
+            String key = key(x.states, x.length);
+            Attractor y = a.get(key);
+            if (y == null) a.put(key, x);
+            else
+            {
+                y.basin += x.basin;
+                y.firstInputs = Math.min(y.firstInputs, x.firstInputs);
+            }
+        }
+        return a;
+    }
+
+    // Merge key of an attractor: its smallest state
+    private static String key(long [] states, int length)
+    {
+        return java.util.Arrays.toString(java.util.Arrays.copyOf(states, states.length / length));
+    }
+
+
+    //------------------------------------------------------------------
+    // The search of one worker over a range of input combinations
+    //------------------------------------------------------------------
+
+    class Search
+    {
+        private StateTable visited = new StateTable(words, 1 << 12);
+        private ArrayList<Attractor> attractors = new ArrayList<Attractor>();
+        private long [] path = new long [64 * words];   // states of the current trajectory
+        private Random rand;
+
+        Search(long seed) { rand = new Random(seed); }
+
+        HashMap<String, Attractor> run(long begin, long end, boolean sampled, int randomStarts)
+        {
+            for (long c = begin; c < end; c++)
+            {
+                long in = sampled ? rand.nextLong() : c;
+                for (int s = 0; s <= randomStarts; s++)
+                {
+                    // start state: receptors from the combination, others OFF or random
+                    for (int w = 0; w < words; w++) path[w] = s == 0 ? 0 : rand.nextLong();
+                    if ((n & 63) != 0) path[words - 1] &= (1L << n) - 1;
+                    for (int i = 0; i < receptors.length; i++)
+                    {
+                        int v = receptors[i];
+                        boolean on = i < 64 ? (in >>> i & 1) != 0 : rand.nextBoolean();
+                        if (on) path[v >>> 6] |=  (1L << v);
+                        else                     path[v >>> 6] &= ~(1L << v);
+                    }
+
+                    Attractor a = attractors.get(follow());
+                    a.basin++;
+                    a.firstInputs = Math.min(a.firstInputs, in);
+                }
+            }
+            visited.free();
+
+            HashMap<String, Attractor> result = new HashMap<String, Attractor>();
+            for (Attractor a : attractors)
+                result.put(key(a.states, a.length), a);
+            return result;
+        }
+
+        //--------------------------------------------------------------
+        // Follow the trajectory from path[0] until a visited state.
+        // Values in the table: attractor index + 1 once resolved, or
+        // -(step + 1) for states on the current trajectory
+        //--------------------------------------------------------------
+
+        private int follow()
+        {
+            int step = 0;
+            while (true)
+            {
+                long value = visited.get(path, step * words);
+                if (value > 0)
+                {
+                    resolve(step, (int) value - 1);
+                    return (int) value - 1;
+                }
+                if (value < 0)
+                {
+                    int id = newAttractor((int) (-value - 1), step);
+                    resolve(step, id);
+                    return id;
+                }
+
+                visited.put(path, step * words, -(step + 1));
+                if ((step + 2) * words > path.length)
+                    path = java.util.Arrays.copyOf(path, path.length * 2);
+                next(path, step * words, path, (step + 1) * words);
+                step++;
+            }
+        }
+
+        // Mark the first 'steps' trajectory states as leading to attractor id
+        private void resolve(int steps, int id)
+        {
+            for (int s = 0; s < steps; s++)
+                visited.put(path, s * words, id + 1);
+        }
+
+        // Cycle path[from .. to-1]: store it rotated to start at its smallest state
+        private int newAttractor(int from, int to)
+        {
+            int len = to - from;
+            int min = from;
+            for (int s = from + 1; s < to; s++)
+                if (compare(path, s * words, path, min * words) < 0) min = s;
+
+            Attractor a = new Attractor();
+            a.length = len;
+            a.states = new long [len * words];
+            a.firstInputs = Long.MAX_VALUE;
+            for (int k = 0; k < len; k++)
+            {
+                int s = from + (min - from + k) % len;
+                System.arraycopy(path, s * words, a.states, k * words, words);
+            }
+            attractors.add(a);
+            return attractors.size() - 1;
+        }
+    }
+
+    private int compare(long [] a, int aOff, long [] b, int bOff)
+    {
+        for (int w = words - 1; w >= 0; w--)
+        {
+            int c = Long.compareUnsigned(a[aOff + w], b[bOff + w]);
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+
+
+    //------------------------------------------------------------------
+    // Open-addressing hash table from states (words longs) to a long
+    // value, stored off heap. Slot layout: words key longs, then the
+    // value; value 0 marks an empty slot. Linear probing, doubled when
+    // half full
+    //------------------------------------------------------------------
+
+    static class StateTable
+    {
+        private int words;
+        private int slotBytes;
+        private int capacity;          // slots, power of two
+        private int size;
+        private ByteBuffer table;
+
+        StateTable(int Words, int initialCapacity)
+        {
+            words     = Words;
+            slotBytes = 8 * (words + 1);
+            allocate(initialCapacity);
+        }
+
+        private void allocate(int cap)
+        {
+            capacity = cap;
+            size     = 0;
+            table    = ByteBuffer.allocateDirect(cap * slotBytes);  // zero filled
+        }
+
+        private int slot(long [] key, int off)
+        {
+            long h = 0x9E3779B97F4A7C15L;
+            for (int w = 0; w < words; w++)
+                h = (h ^ key[off + w]) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+
+            int i = (int) h & (capacity - 1);
+            while (true)
+            {
+                int base = i * slotBytes;
+                if (table.getLong(base + 8 * words) == 0) return i;
+
+                boolean same = true;
+                for (int w = 0; w < words && same; w++)
+                    same = table.getLong(base + 8 * w) == key[off + w];
+                if (same) return i;
+
+                i = (i + 1) & (capacity - 1);
+            }
+        }
+
+        // Value of the state at key[off..], 0 if not present
+        long get(long [] key, int off)
+        {
+            return table.getLong(slot(key, off) * slotBytes + 8 * words);
+        }
+
+        void put(long [] key, int off, long value)
+        {
+            int base = slot(key, off) * slotBytes;
+            if (table.getLong(base + 8 * words) == 0)
+            {
+                for (int w = 0; w < words; w++) table.putLong(base + 8 * w, key[off + w]);
+                size++;
+            }
+            table.putLong(base + 8 * words, value);
+
+            if (2 * size > capacity) grow();
+        }
+
+        private void grow()
+        {
+            ByteBuffer old = table;
+            int oldCap = capacity;
+            allocate(2 * oldCap);
+
+            long [] key = new long [words];
+            for (int i = 0; i < oldCap; i++)
+            {
+                int base = i * slotBytes;
+                long value = old.getLong(base + 8 * words);
+                if (value == 0) continue;
+                for (int w = 0; w < words; w++) key[w] = old.getLong(base + 8 * w);
+                put(key, 0, value);
+            }
+        }
+
+        int size() { return size; }
+
+        // Drop the table (the memory is returned when the buffer is collected)
+        void free() { allocate(1); }
+    }
+
+
+    //------------------------------------------------------------------
+    // Attractors of the active pathways
+    //
+    //   java BooleanNetwork [-pathways 4,5] [-samples 65536] [-starts 0] [-seed 1]
+    //------------------------------------------------------------------
+
+    public static void main(String [] args)
+    {
+        String pathwayList = null;
+        long samples = 1 << 16;
+        int starts = 0;
+        long seed = 1;
+
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+                 if (args[i].equals("-pathways")) pathwayList = args[i + 1];
+            else if (args[i].equals("-samples"))  samples = Long.parseLong(args[i + 1]);
+            else if (args[i].equals("-starts"))   starts  = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("-seed"))     seed    = Long.parseLong(args[i + 1]);
+        }
+
+        GridState grid = new GridState(30, 30);
+        ProteinElement [][] network = new ProteinElement [30][30];
+        for (int row = 0; row < network.length; row++)
+            for (int col = 0; col < network[row].length; col++)
+                network[row][col] = new ProteinElement(row, col, grid);
+
+        Pathway [] pathways = new Pathway [Pathway.NAMES.length];
+        for (int i = 0; i < pathways.length; i++)
+        {
+            pathways[i] = new Pathway(i, Pathway.NAMES[i], Pathway.NAMES[i], network, null);
+            pathways[i].deactivate();
+        }
+        if (pathwayList == null)
+            for (int i = 0; i < pathways.length; i++) pathways[i].activate();
+        else
+            for (String p : pathwayList.split(",")) pathways[Integer.parseInt(p.trim())].activate();
+
+        SignalingGraph g = SignalingGraph.fromNetwork(network, true);
+        BooleanNetwork bn = new BooleanNetwork(g);
+
+        long begin = System.nanoTime();
+        ArrayList<Attractor> list = bn.findAttractors(ForkJoinPool.commonPool(), samples, starts, seed);
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+
+        System.out.println(g.getNodeCount() + " proteins, " + bn.getReceptorCount() + " receptors, " +
+                           list.size() + " attractors in " + String.format("%.2f", elapsed) + " s");
+
+        int activating = 0;
+        for (Attractor a : list)
+        {
+            // nuclear proteins ON in any state of the attractor
+            StringBuilder nuclear = new StringBuilder();
+            for (int v = 0; v < g.getNodeCount(); v++)
+            {
+                if (!g.isNuclear(v)) continue;
+                for (int k = 0; k < a.length; k++)
+                {
+                    if (isOn(a.states, k * bn.getWords(), v))
+                    {
+                        nuclear.append(' ').append(g.getName(v));
+                        break;
+                    }
+                }
+            }
+
+            if (nuclear.length() > 0) activating++;
+
+            // receptors ON in the first input combination reaching it
+            StringBuilder inputs = new StringBuilder();
+            for (int i = 0; i < Math.min(64, bn.getReceptorCount()); i++)
+                if ((a.firstInputs >>> i & 1) != 0) inputs.append(' ').append(g.getName(bn.getReceptor(i)));
+
+            System.out.println((a.length == 1 ? "Fixed point" : "Cycle of " + a.length) +
+                               ", basin " + a.basin + ", inputs:" +
+                               (inputs.length() == 0 ? " none" : inputs.toString()) +
+                               ", nuclear activation:" +
+                               (nuclear.length() == 0 ? " none" : nuclear.toString()));
+        }
+        System.out.println(activating + " of " + list.size() + " attractors activate the nucleus");
+    }
+}
@@ -25,13 +25,16 @@ import javax.imageio.ImageIO;
 // ProteinElements. It also stores an Image of DNA in nucleus
 //-------------------------------------------------------------------
 
-class CellPanel extends JPanel implements MouseListener, KeyListener, ActionListener 
+class CellPanel extends JPanel implements MouseListener, MouseMotionListener, MouseWheelListener,
+                                       KeyListener, ActionListener 
 {
     private ScorePanel score;  // reference to the Score Panel
     private int width;         // width of the cell panel
     private int height;        // height of the cell panel
     
     private ProteinElement [][] network; // 2D array of Protein Elements
+    private GridState grid;              // active pathways and signal step of network
+    private DistanceField distances;     // hop and walking distances for hints and AI
     private final int SIZE = 30;         
     
     private boolean oncoOpen;        // Oncogenic signal jaw open or close 
@@ -40,14 +43,57 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
     private Timer oncoMoveTimer;     // Timer to move oncogenic signals
     private Timer oncoFlashTimer;    // Timer to blink oncogenic signals
     private Timer suppressorTimer;   // Timer to blink suppressors
+    private Timer signalClock;       // Clock for timed mode signal events
     
     private Random rand;             // for random number generation
     
     private boolean gameOn;          // Is game being played or not
     private boolean gamePaused;      // Is game temporarily paused
     
+    private boolean concentrationMode;          // Show continuous concentrations
+    private ConcentrationModel concentrations;  // ODE model of the active pathways
+    
+    private boolean parallelStepping;           // Compute pathway steps in parallel
+    
+    private boolean hintMode;                   // Highlight choke points
+    private ChokePoints chokePoints;            // Minimum receptor to nucleus cut
+    
+    private boolean therapyMode;                // Show the optimal inhibitor placement
+    private DrugPlacement therapy;              // Best NUM_SUPPRESSORS inhibitors
+    
+    private boolean heatmapMode;                // Show the signal traffic heatmap
+    private SignalHeatmap heatmap;              // Traffic and damage of this session
+    
+    private double zoom = 1.0;                  // Viewport zoom (1 = whole cell fits, below 1 it shrinks)
+    private int    panX, panY;                  // Viewport offset in zoomed pixels (negative centres a small cell)
+    private int    dragX, dragY;                // Last mouse position of a pan drag
+    private boolean panning;                    // Right or middle button drag in progress
+    private ConnectionIndex connectionIndex;    // Connections by grid bucket for culling
+    
+    private static final double MAX_ZOOM  = 8.0;
+    
+    // Level of detail by cell size in pixels (short side): below FAR_PIXELS
+    // cells are merged into density tiles, below LABEL_PIXELS proteins are
+    // plain boxes and connections plain lines
+    private static final int FAR_PIXELS   = 6;
+    private static final int LABEL_PIXELS = 16;
+    private static final double ZOOM_STEP = 1.25;  // zoom factor per wheel notch
+    
+    private boolean timedMode;                  // Per-connection signal delays
+    private TimedSignaling timedSignals;        // Scheduled signal events in timed mode
+    
     private Pathway []  pathways;      // Array of all pathways (size 9)  
     private Suppressor [] suppressors; // Array of suppressors (size 4)
+    private Autopilot autopilot;       // Computer control for selected suppressors
+    private int [] autopilotMoves;     // Planned autopilot moves (one per suppressor)
+    
+    private RoutePlanner routes;       // A* routes for click-to-move
+    private int selectedSuppressor;    // Suppressor selected by mouse click, -1 if none
+    private int [][] suppressorRoute;  // Route each suppressor is walking, null if none
+    private int [] routeStep;          // Next route cell of each suppressor
+    
+    private ControllerHost controllers; // Plug-in suppressor controllers
+    private int [] controllerMoves;     // Moves returned by the controllers
     
     private boolean []  pathwaysPreference;    // User indicated pathway preference
     private boolean []  alterationsPreference; // User indicated alteration preference
@@ -56,6 +102,18 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
     private static final int NUM_ALTERATIONS = 4; // number of alterations
     
     private static final int NUM_SUPPRESSORS = 4; // number of suppressors
+    
+    //----------------------------------------------------------------
+    // Keys of each suppressor in Up, Down, Left, Right order
+    //   Top Left (0): 3 2 1 4,      Top Right (1): 9 8 7 0
+    //   Bottom Left (2): W S A D,   Bottom Right (3): arrow keys
+    //----------------------------------------------------------------
+    private static final int [][] SUPPRESSOR_KEYS = {
+        { KeyEvent.VK_3,  KeyEvent.VK_2,    KeyEvent.VK_1,    KeyEvent.VK_4     },
+        { KeyEvent.VK_9,  KeyEvent.VK_8,    KeyEvent.VK_7,    KeyEvent.VK_0     },
+        { KeyEvent.VK_W,  KeyEvent.VK_S,    KeyEvent.VK_A,    KeyEvent.VK_D     },
+        { KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT }
+    };
             
     Image dnaFigure;  // DNA Image in the cell nucleus
     
@@ -93,15 +151,23 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
         setAlterationsPreference(0, true);
           
         // Protein Element Network (create and initialize)
+        grid = new GridState(SIZE, SIZE);
         network = new ProteinElement[SIZE][SIZE];
         for (int row = 0; row < network.length; row++)
         {
             for (int col = 0; col < network[row].length; col++)
             {
-                network[row][col] = new ProteinElement(row, col);
+                network[row][col] = new ProteinElement(row, col, grid);
             }
         }
         
+        distances = new DistanceField(network);
+        chokePoints = new ChokePoints(network);
+        therapy = new DrugPlacement(network, NUM_SUPPRESSORS);
+        
+        heatmap = new SignalHeatmap(SIZE, SIZE);   // kept across games of the session
+        grid.setHeatmap(heatmap);
+        
         // Suppressors (create and initialize)
         suppressors = new Suppressor [NUM_SUPPRESSORS];
         for (int i = 0; i < NUM_SUPPRESSORS; i++) 
@@ -109,10 +175,24 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
             suppressors[i] = new Suppressor(0, 0, network, score);
         }
         
+        autopilot = new Autopilot(network, distances, suppressors);
+        autopilotMoves = new int [NUM_SUPPRESSORS];
+        
+        routes = new RoutePlanner(distances);
+        selectedSuppressor = -1;
+        suppressorRoute = new int [NUM_SUPPRESSORS][];
+        routeStep = new int [NUM_SUPPRESSORS];
+        
+        controllers = new ControllerHost(network, suppressors, distances);
+        controllerMoves = new int [NUM_SUPPRESSORS];
+        
         addMouseListener(this);  // register self as mouse listener
+        addMouseMotionListener(this);
+        addMouseWheelListener(this);
         addKeyListener(this);    // register self as key listener
         
         setBackground(Color.BLACK);
+        setPreferredSize(new Dimension(1000, 700));
         
         oncoMoveTimer = new Timer(4000, this);   // Timer to move onco signals
         oncoMoveTimer.start();      
@@ -123,11 +203,17 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
         suppressorTimer = new Timer(300, this);  // Timer to flash suppressors
         suppressorTimer.start();       
         
+        signalClock = new Timer(TimedSignaling.TICK_MS, this);  // Timed mode clock
+        signalClock.start();
+        
+        timedSignals = new TimedSignaling(network, score);
+        
         //------------------------------------------------------------
         // Create all 9 signaling pathways that the game comes with.
         // Create proteins and their connections for each pathways
         //------------------------------------------------------------
         createAllSignalingPathways();
+        connectionIndex = new ConnectionIndex(network);
         
         initializeGame();      // initialize the game
     }
@@ -196,26 +282,24 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
         
         initializePathways();     // deactivate all pathways
         
+        concentrations = null;    // rebuilt when the game starts
+        
+        timedSignals.reset();     // drop in-flight signals
+        
         repaint();
     }   
     
     
     //------------------------------------------------------
     // Initialize protein grid by clearing out all
-    // oncogenic and suppressor signal
+    // oncogenic and suppressor signal (and concentrations
+    // shown). Advancing the grid epoch clears every cell
+    // at once, see GridState.
     //------------------------------------------------------
     
     public void initializeProteinGrid()
     {
-        for (int row = 0; row < network.length; row++)
-        {
-            for (int col = 0; col < network[row].length; col++)
-            {
-                network[row][col].setOncogenicSignal(false);  // clear onco signal
-                network[row][col].setSuppressorSignal(false); // clear suppressor
-                network[row][col].setActive(false);           // inactive
-            }
-        }
+        grid.nextEpoch();
     }
     
     
@@ -227,17 +311,10 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
     {
         for (int i = 0; i < NUM_SUPPRESSORS; i++) 
         {
-            int row = 0, col = 0;
-            switch(i)
-            {
-                case 0:  row = 12; col = 6;  break;
-                case 1:  row = 12; col = 23; break;
-                case 2:  row = 18; col = 6;  break;
-                case 3:  row = 18; col = 23; break;
-                default: row = col = SIZE/2; break;
-            }
-            suppressors[i].set(row, col);
+            suppressors[i].set(Suppressor.START_ROW[i], Suppressor.START_COL[i]);
+            suppressorRoute[i] = null;
         }  
+        selectedSuppressor = -1;
     }
      
     
@@ -272,6 +349,50 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
         
         // Activate the selected pathways
         activatePathways(simulatedPathways);
+        
+        if (concentrationMode) startConcentrations();
+        
+        if (timedMode) timedSignals.start(pathways);
+    }
+    
+    
+    //-----------------------------------------------------------------
+    // Build the concentration (ODE) model of the active pathways
+    //-----------------------------------------------------------------
+    
+    public void startConcentrations()
+    {
+        concentrations = new ConcentrationModel(SignalingGraph.fromNetwork(network, true));
+        concentrations.store(network);
+    }
+    
+    // Turn timed mode (per-connection delays) on or off
+    public void setTimedMode(boolean selected)
+    {
+        timedMode = selected;
+        
+        timedSignals.reset();
+        if (timedMode && (gameOn || gamePaused))
+            timedSignals.start(pathways);
+    }
+    
+    // Turn concentration mode on or off
+    public void setConcentrationMode(boolean selected)
+    {
+        concentrationMode = selected;
+        
+        if (concentrationMode && (gameOn || gamePaused))
+        {
+            startConcentrations();
+        }
+        else if (!concentrationMode)
+        {
+            concentrations = null;
+            for (int row = 0; row < network.length; row++)
+                for (int col = 0; col < network[row].length; col++)
+                    network[row][col].clearConcentration();
+        }
+        repaint();
     }
     
     
@@ -284,44 +405,7 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
     
     public void decideSimulatedPathways(int [] simulatedPathways)
     {
-        int level = simulatedPathways.length;
-        int levelIndex = 0;      
-
-        // Select 'level' number of pathways based on user indicated pathways preference
-        for (int pathwayIndex = 0; pathwayIndex < NUM_PATHWAYS; pathwayIndex++) 
-        {
-            // only look at user preference first
-            if (pathwaysPreference[pathwayIndex] == true)
-            {   
-                simulatedPathways[levelIndex] = pathwayIndex;  // record pathway index
-                levelIndex++;
-                if (levelIndex == level) break;
-            }    
-        }
-        
-        // User pathways preference is less than current game level
-        // Randomly fill remaining pathways
-        while (levelIndex < level)
-        {
-            int i = rand.nextInt(NUM_PATHWAYS);
-            
-            // Check if pathway index i is already selected
-            boolean alreadySelected = false;
-            for (int k = 0; k < levelIndex; k++)
-            {
-                if (i == simulatedPathways[k]) 
-                {
-                    alreadySelected = true;
-                    break;
-                }
-            }
- 
-            if (alreadySelected == false)
-            {
-                simulatedPathways[levelIndex] = i;
-                levelIndex++;
-            }   
-        }
+        Pathway.decideSimulatedPathways(simulatedPathways, pathwaysPreference, rand);
     }
     
     
@@ -347,21 +431,64 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
     
     //-----------------------------------------------------------
     // Move oncogenic signals along the the activated pathways 
+    // (see Pathway.stepAll)
     //-----------------------------------------------------------
     
     public void moveOncogenicSignals()
     {
-        for (int pathwayIndex = 0; pathwayIndex < NUM_PATHWAYS; pathwayIndex++) 
-        {
-            // For active pathways move onco signals one step forward
-            if (pathways[pathwayIndex].isActive())
-                pathways[pathwayIndex].moveOncoOneStep();
-        }  
+        Pathway.stepAll(pathways, parallelStepping);
     
         // repaint after moving signals
         repaint();
     }
     
+    // Turn choke point hints on or off
+    public void setHintMode(boolean selected)
+    {
+        hintMode = selected;
+        repaint();
+    }
+    
+    // Turn the optimal therapy overlay on or off
+    public void setTherapyMode(boolean selected)
+    {
+        therapyMode = selected;
+        repaint();
+    }
+    
+    // Turn the signal traffic heatmap on or off
+    public void setHeatmapMode(boolean selected)
+    {
+        heatmapMode = selected;
+        repaint();
+    }
+    
+    // Turn parallel pathway stepping on or off
+    public void setParallelStepping(boolean selected)
+    {
+        parallelStepping = selected;
+    }
+    
+    
+    // Put suppressor 'sIndex' under autopilot control or back to keys
+    public void setAutopilot(int sIndex, boolean selected)
+    {
+        autopilot.setEnabled(sIndex, selected);
+    }
+    
+    
+    // Let plug-in controller 'name' drive suppressor 'sIndex' (null = keys)
+    public void setController(int sIndex, String name)
+    {
+        controllers.assign(sIndex, name);
+        if (name != null) suppressorRoute[sIndex] = null;
+    }
+    
+    public ControllerHost getControllers() { return controllers; }
+    
+    
+    // Precomputed distances to the nucleus and between walkable cells
+    public DistanceField getDistanceField() { return distances; }
     
     // Set/Clear preference for pathway indexed by pIndex
     public void setPathwaysPreference(int pIndex, boolean selected)
@@ -375,16 +502,160 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
         alterationsPreference[aIndex] = selected;
     }
     
-    // Get the focus to move suppressor
+    //----------------------------------------------------------
+    // Get the focus to move suppressors. While a game is on, a
+    // click on a suppressor selects it and a click on another
+    // cell sends the selected suppressor there along a route
+    //----------------------------------------------------------
+    
     public void mousePressed(MouseEvent e)
     { 
         requestFocus();
+        
+        // right or middle button drags pan the view
+        if (!SwingUtilities.isLeftMouseButton(e))
+        {
+            panning = true;
+            dragX = e.getX();
+            dragY = e.getY();
+            return;
+        }
+        
+        if (!gameOn) return;
+        
+        int row = Math.floorDiv(e.getY() + panY, getYStep());
+        int col = Math.floorDiv(e.getX() + panX, getXStep());
+        if (row < 0 || col < 0 || row >= SIZE || col >= SIZE) return;
+        
+        for (int i = 0; i < NUM_SUPPRESSORS; i++)
+        {
+            if (suppressors[i].getRow() == row && suppressors[i].getCol() == col)
+            {
+                selectedSuppressor = i;
+                repaint();
+                return;
+            }
+        }
+        
+        if (selectedSuppressor >= 0)
+        {
+            Suppressor s = suppressors[selectedSuppressor];
+            suppressorRoute[selectedSuppressor] = routes.route(s.getRow(), s.getCol(), row, col);
+            routeStep[selectedSuppressor] = 0;
+            selectedSuppressor = -1;
+            repaint();
+        }
     }
     
-    public void mouseReleased(MouseEvent e) { }
+    
+    //----------------------------------------------------------
+    // Move every routed suppressor one cell along its route. A
+    // route is dropped when done or when the suppressor was
+    // moved off it by keys or autopilot
+    //----------------------------------------------------------
+    
+    public void followRoutes()
+    {
+        for (int i = 0; i < NUM_SUPPRESSORS; i++)
+        {
+            int [] route = suppressorRoute[i];
+            if (route == null) continue;
+            
+            if (routeStep[i] >= route.length || autopilot.isEnabled(i) || controllers.isControlled(i))
+            {
+                suppressorRoute[i] = null;
+                continue;
+            }
+            
+            Suppressor s = suppressors[i];
+            int dRow = route[routeStep[i]] / SIZE - s.getRow();
+            int dCol = route[routeStep[i]] % SIZE - s.getCol();
+            
+                 if (dRow == -1 && dCol == 0) s.moveUp();
+            else if (dRow ==  1 && dCol == 0) s.moveDown();
+            else if (dRow ==  0 && dCol == -1) s.moveLeft();
+            else if (dRow ==  0 && dCol == 1) s.moveRight();
+            else 
+            {
+                suppressorRoute[i] = null;
+                continue;
+            }
+            
+            routeStep[i]++;
+        }
+    }
+    
+    public void mouseReleased(MouseEvent e) { panning = false; }
     public void mouseClicked(MouseEvent e)  { }
     public void mouseEntered(MouseEvent e)  { }    
     public void mouseExited(MouseEvent e)   { }
+    public void mouseMoved(MouseEvent e)    { }
+    
+    public void mouseDragged(MouseEvent e)
+    {
+        if (!panning) return;
+        
+        panX -= e.getX() - dragX;
+        panY -= e.getY() - dragY;
+        dragX = e.getX();
+        dragY = e.getY();
+        clampView();
+        repaint();
+    }
+    
+    
+    //----------------------------------------------------------
+    // Zoom in or out by the wheel, keeping the point under the
+    // mouse in place
+    //----------------------------------------------------------
+    
+    public void mouseWheelMoved(MouseWheelEvent e)
+    {
+        double oldX = (e.getX() + panX) / (double) getXStep();   // cell under the mouse
+        double oldY = (e.getY() + panY) / (double) getYStep();
+        
+        zoom *= Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation());
+        zoom  = Math.max(getMinZoom(), Math.min(MAX_ZOOM, zoom));
+        
+        panX = (int) (oldX * getXStep()) - e.getX();
+        panY = (int) (oldY * getYStep()) - e.getY();
+        clampView();
+        repaint();
+    }
+    
+    // Back to the whole cell
+    public void resetView()
+    {
+        zoom = 1.0;
+        panX = panY = 0;
+        repaint();
+    }
+    
+    // Cell size in pixels at the current zoom
+    private int getXStep() { return Math.max(1, (int) (getWidth()  * zoom / SIZE)); }
+    private int getYStep() { return Math.max(1, (int) (getHeight() * zoom / SIZE)); }
+    
+    // Zoomed out as far as grid cells of one pixel (the density tiles
+    // of the far view merge them into bigger blocks)
+    private double getMinZoom()
+    {
+        return Math.min(1.0, SIZE / (double) Math.max(1, Math.min(getWidth(), getHeight())));
+    }
+    
+    // Keep the view inside the zoomed cell, or the zoomed cell in the
+    // middle of the panel when it is smaller than the panel
+    private void clampView()
+    {
+        panX = clampPan(panX, getXStep() * SIZE, (int) (getWidth()  * zoom), getWidth());
+        panY = clampPan(panY, getYStep() * SIZE, (int) (getHeight() * zoom), getHeight());
+    }
+    
+    // grid: zoomed grid size, cell: zoomed cell outline size, view: panel size
+    private int clampPan(int pan, int grid, int cell, int view)
+    {
+        if (cell <= view) return (cell - view) / 2;
+        return Math.max(0, Math.min(pan, grid - view));
+    }
     
     
     //----------------------------------------------------------
@@ -395,40 +666,29 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
     {   
         int code = e.getKeyCode();
         
+        if (code == KeyEvent.VK_HOME) 
+        {
+            resetView();
+            return;
+        }
+        
         // If game is not being played return
         if (!gameOn) return;
         
-        switch (code)
+        for (int i = 0; i < NUM_SUPPRESSORS; i++)
         {
-            // Top Left Suppressor Agent (0)
-            case KeyEvent.VK_3: suppressors[0].moveUp();    break;  // Up
-            case KeyEvent.VK_2: suppressors[0].moveDown();  break;  // Down
-            case KeyEvent.VK_1: suppressors[0].moveLeft();  break;  // Left
-            case KeyEvent.VK_4: suppressors[0].moveRight(); break;  // Right
-                    
-            // Top Right Suppressor Agent (1)   
-            case KeyEvent.VK_9:  suppressors[1].moveUp();    break;  // Up
-            case KeyEvent.VK_8:  suppressors[1].moveDown();  break;  // Down
-            case KeyEvent.VK_7: suppressors[1].moveLeft();   break;  // Left
-            case KeyEvent.VK_0: suppressors[1].moveRight();  break;  // Right
-               
-  
-            // Bottom Left Suppressor Agent (2)    
-            case KeyEvent.VK_W: suppressors[2].moveUp();    break;  // Up
-            case KeyEvent.VK_S: suppressors[2].moveDown();  break;  // Down
-            case KeyEvent.VK_A: suppressors[2].moveLeft();  break;  // Left
-            case KeyEvent.VK_D: suppressors[2].moveRight(); break;  // Right
-                                          
-            // Bottom Right Suppressor Agent (3)   
-            case KeyEvent.VK_UP:    suppressors[3].moveUp();    break;  // Up
-            case KeyEvent.VK_DOWN:  suppressors[3].moveDown();  break;  // Down
-            case KeyEvent.VK_LEFT:  suppressors[3].moveLeft();  break;  // Left
-            case KeyEvent.VK_RIGHT: suppressors[3].moveRight(); break;  // Right
-                          
-            default: return; // if some other key is pressed then don't do anything
+            for (int k = 0; k < 4; k++)
+            {
+                if (SUPPRESSOR_KEYS[i][k] != code) continue;
+                
+                // keys don't move suppressors driven by a controller
+                if (controllers.isControlled(i)) return;
+                
+                suppressors[i].move(Suppressor.UP + k);
+                repaint();
+                return;
+            }
         }
-        
-        repaint();
     }
     
     public void keyReleased(KeyEvent e) { }
@@ -446,14 +706,39 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
         if (src == oncoFlashTimer)
         {
             oncoOpen = !oncoOpen;               // Oncogenic Signal animation
+            
+            // Advance concentrations by one flash period
+            if (gameOn && concentrations != null)
+            {
+                concentrations.integrate(oncoFlashTimer.getDelay() / 1000.0);
+                concentrations.store(network);
+            }
         }
         else if (src == suppressorTimer)
         {
             suppressorOpen = !suppressorOpen;   // Suppressor animation
+            
+            if (gameOn && autopilot.anyEnabled()) autopilot.step(autopilotMoves);
+            if (gameOn) followRoutes();
+            
+            if (gameOn && controllers.anyControlled())
+            {
+                controllers.tick(controllerMoves);   // answers to the last tick, never waits
+                for (int i = 0; i < NUM_SUPPRESSORS; i++)
+                    suppressors[i].move(controllerMoves[i]);
+            }
         }
         else if (src == oncoMoveTimer)
         {
-            if (gameOn) moveOncogenicSignals(); // Move cancer signals along pathways
+            if (gameOn && !timedMode) moveOncogenicSignals(); // Move cancer signals along pathways
+            if (gameOn) heatmap.decay();                       // old traffic cools down
+        }
+        else if (src == signalClock)
+        {
+            // Timed mode: process due signal events, repaint only if something happened
+            if (gameOn && timedMode && timedSignals.advance() > 0)
+                repaint();
+            return;
         }
         
         // 'command' will be null for timer events, so repaint and return
@@ -522,18 +807,22 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
     
     
     // Draw cell and nucleus outline. Draw DNA image inside nucleus
+    // (zoomed, in the coordinates of the whole cell)
     public void drawCellAndNucleus(Graphics g)
     {
+        int w = (int) (width * zoom), h = (int) (height * zoom);
+        int z80 = (int) (80 * zoom), z60 = (int) (60 * zoom), z50 = (int) (50 * zoom), z40 = (int) (40 * zoom);
+        
         // nucleus outline
         g.setColor(Color.RED);
-        g.drawOval(width/2 - 80, height/2 - 60, 160, 120);
+        g.drawOval(w/2 - z80, h/2 - z60, 2 * z80, 2 * z60);
         
         // DNA within nucleus
-        g.drawImage(dnaFigure, width/2 - 50, height/2 - 40, 100, 80, this);
+        g.drawImage(dnaFigure, w/2 - z50, h/2 - z40, 2 * z50, 2 * z40, this);
         
         // cell outline
         g.setColor(Color.CYAN);
-        g.drawOval(30, 20, width - 60, height - 60);   
+        g.drawOval((int) (30 * zoom), (int) (20 * zoom), w - (int) (60 * zoom), h - (int) (60 * zoom));   
         
         // drawGrid(g);
     }
@@ -546,24 +835,98 @@ class CellPanel extends JPanel implements MouseListener, KeyListener, ActionList
         // Get width and height of panel
         width  = getWidth();
         height = getHeight();
+        clampView();     // the panel may have been resized
+        
+        // Everything below is drawn in zoomed cell coordinates
+        g.translate(-panX, -panY);
         
         // Draw grid, cell and nucleus
         drawCellAndNucleus(g);
         
-        int xStep = width / SIZE;
-        int yStep = height / SIZE;
+        int xStep = getXStep();
+        int yStep = getYStep();
         
-        // Draw cell intra-cellular signaling network
-        for (int row = 0; row < network.length; row++)
+        // Visible cells only
+        int row0 = Math.max(0, panY / yStep), row1 = Math.min(SIZE - 1, (panY + height) / yStep);
+        int col0 = Math.max(0, panX / xStep), col1 = Math.min(SIZE - 1, (panX + width) / xStep);
+        
+        int cellPixels = Math.min(xStep, yStep);
+        
+        if (cellPixels < FAR_PIXELS)
         {
-            for (int col = 0; col < network[row].length; col++)
+            // Far: density tiles heated by signals, suppressors on top
+            TilePyramid tiles = grid.getTiles();
+            tiles.draw(g, tiles.levelFor(xStep, yStep), xStep, yStep, row0, col0, row1, col1);
+            
+            g.setColor(Color.BLUE);
+            for (int i = 0; i < suppressors.length; i++)
+                g.fillRect(xStep * suppressors[i].getCol(), yStep * suppressors[i].getRow(), 
+                           Math.max(FAR_PIXELS, xStep), Math.max(FAR_PIXELS, yStep));
+        }
+        else
+        {
+            boolean labels = cellPixels >= LABEL_PIXELS;
+            
+            // Draw cell intra-cellular signaling network
+            for (int row = row0; row <= row1; row++)
             {
-                int x = xStep * col;  // top left x-coordinate of (row, col) box
-                int y = yStep * row;  // top left y-coordinate of (row, col) box
-                
-                // Draw occupants in (row, col) location
-                network[row][col].Draw(x, y, g, xStep, yStep, oncoOpen, suppressorOpen); 
+                for (int col = col0; col <= col1; col++)
+                {
+                    int x = xStep * col;  // top left x-coordinate of (row, col) box
+                    int y = yStep * row;  // top left y-coordinate of (row, col) box
+                    
+                    // Draw occupants in (row, col) location
+                    network[row][col].DrawCell(x, y, g, xStep, yStep, oncoOpen, suppressorOpen, labels); 
+                }
+            }         
+            
+            // Connections that may cross the visible cells
+            int n = connectionIndex.query(row0, col0, row1, col1);
+            for (int i = 0; i < n; i++)
+            {
+                if (labels) connectionIndex.getResult(i).Draw(g, xStep, yStep);
+                else        connectionIndex.getResult(i).DrawLine(g, xStep, yStep);
+            }
+        }
+        
+        // Heatmap overlay: where signals traveled and hit the nucleus
+        if (heatmapMode)
+            heatmap.draw(g, xStep, yStep);
+        
+        // Hint overlay: proteins whose blockade cuts all receptor to nucleus paths
+        if (hintMode && (gameOn || gamePaused))
+        {
+            g.setColor(Color.ORANGE);
+            for (int cell : chokePoints.getCells())
+            {
+                int x = xStep * (cell % SIZE);
+                int y = yStep * (cell / SIZE);
+                g.drawRect(x + 1, y + 1, xStep - 3, yStep - 3);
+                g.drawRect(x + 2, y + 2, xStep - 5, yStep - 5);
             }
-        }         
+        }
+        
+        // Therapy overlay: best static inhibitor placement for the active pathways
+        if (therapyMode && (gameOn || gamePaused))
+        {
+            g.setColor(Color.GREEN);
+            for (int cell : therapy.getCells())
+            {
+                int x = xStep * (cell % SIZE);
+                int y = yStep * (cell / SIZE);
+                g.drawOval(x + 1, y + 1, xStep - 3, yStep - 3);
+                g.drawOval(x + 2, y + 2, xStep - 5, yStep - 5);
+            }
+        }
+        
+        // Outline the suppressor selected for click-to-move
+        if (selectedSuppressor >= 0)
+        {
+            g.setColor(Color.YELLOW);
+            g.drawRect(xStep * suppressors[selectedSuppressor].getCol(), 
+                       yStep * suppressors[selectedSuppressor].getRow(), xStep - 1, yStep - 1);
+        }
+        
+        g.translate(panX, panY);
     }
 }
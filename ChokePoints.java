@@ -0,0 +1,235 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/30/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.util.HashMap;
+
+//--------------------------------------------------------------------
+// Choke points of the active signaling network: a smallest set of
+// proteins whose blockade cuts every path from a receptor to a
+// nuclear protein.
+//
+// Found as a minimum cut with max-flow (Dinic) after node splitting:
+// every protein v becomes v_in --1--> v_out, every connection u -> v
+// becomes u_out --inf--> v_in, a source feeds all receptors and all
+// nuclear proteins drain into a sink. The proteins whose v_in is
+// reachable from the source in the final residual graph and whose
+// v_out is not form the cut. All capacities except the proteins are
+// infinite, so the flow is at most the number of proteins and Dinic
+// runs in O(E * sqrt(V)).
+//
+// Results are cached per active pathway mask.
+//--------------------------------------------------------------------
+
+class ChokePoints
+{
+    private ProteinElement [][] network;     // reference to Signaling network
+    private GridState grid;                  // active pathway mask of the network
+    private HashMap<Long, int[]> cache = new HashMap<Long, int[]>();   // mask -> cut cells
+
+    private static final int INF = Integer.MAX_VALUE / 2;
+
+    public ChokePoints(ProteinElement [][] ntk)
+    {
+        network = ntk;
+        grid    = network[0][0].getGrid();
+    }
+
+
+    //------------------------------------------------------------------
+    // Cells (row*cols+col) of the choke points of the active pathways
+    //------------------------------------------------------------------
+
+    public int [] getCells()
+    {
+        long mask = grid.getActivePathways();
+        int [] cells = cache.get(mask);
+        if (cells == null)
+        {
+            SignalingGraph g = SignalingGraph.fromNetwork(network, true);
+            int [] cut = minimumCut(g);
+
+            cells = new int [cut.length];
+            for (int i = 0; i < cut.length; i++)
+                cells[i] = g.getRow(cut[i]) * g.getCols() + g.getCol(cut[i]);
+            cache.put(mask, cells);
+        }
+        return cells;
+    }
+
+    public boolean isChokePoint(int row, int col)
+    {
+        int cell = row * network[0].length + col;
+        for (int c : getCells())
+            if (c == cell) return true;
+        return false;
+    }
+
+
+    //------------------------------------------------------------------
+    // Nodes of a minimum receptor -> nuclear vertex cut of graph g
+    //------------------------------------------------------------------
+
+    public static int [] minimumCut(SignalingGraph g)
+    {
+        return new FlowNetwork(g).cut();
+    }
+
+
+    //------------------------------------------------------------------
+    // Split node flow network with arrays for edges (edge e and its
+    // reverse e ^ 1 are stored next to each other)
+    //------------------------------------------------------------------
+
+    static class FlowNetwork
+    {
+        private SignalingGraph g;
+        private int n;                 // proteins
+        private int nodes;             // 2n + source + sink
+        private int source, sink;
+
+        private int [] head;           // first edge of each flow node, -1 if none
+        private int [] next;           // next edge of the same node
+        private int [] to;             // target flow node
+        private int [] cap;            // residual capacity
+        private int    edges;
+
+        private int [] level;          // BFS level of each flow node
+        private int [] iter;           // current edge of each node in DFS
+        private int [] queue;
+        private int [] stackNode, stackEdge;   // explicit DFS stack
+
+        FlowNetwork(SignalingGraph graph)
+        {
+            g = graph;
+            n = g.getNodeCount();
+            nodes  = 2 * n + 2;
+            source = 2 * n;
+            sink   = 2 * n + 1;
+
+            int maxEdges = 2 * (n + g.getEdgeCount() + n + n);
+            head = new int [nodes];
+            next = new int [maxEdges];
+            to   = new int [maxEdges];
+            cap  = new int [maxEdges];
+            java.util.Arrays.fill(head, -1);
+
+            for (int v = 0; v < n; v++)
+            {
+                addEdge(in(v), out(v), 1);
+                if (g.isReceptor(v)) addEdge(source, in(v), INF);
+                if (g.isNuclear(v))  addEdge(out(v), sink, INF);
+
+                for (int e = g.firstEdge(v); e < g.firstEdge(v + 1); e++)
+                    addEdge(out(v), in(g.getTarget(e)), INF);
+            }
+
+            level     = new int [nodes];
+            iter      = new int [nodes];
+            queue     = new int [nodes];
+            stackNode = new int [nodes];
+            stackEdge = new int [nodes];
+        }
+
+        private int in(int v)  { return 2 * v;     }
+        private int out(int v) { return 2 * v + 1; }
+
+        private void addEdge(int u, int v, int c)
+        {
+            to[edges] = v; cap[edges] = c; next[edges] = head[u]; head[u] = edges++;
+            to[edges] = u; cap[edges] = 0; next[edges] = head[v]; head[v] = edges++;
+        }
+
+        // BFS levels from the source in the residual graph
+        private boolean bfs()
+        {
+            java.util.Arrays.fill(level, -1);
+            int qh = 0, qt = 0;
+            level[source] = 0;
+            queue[qt++] = source;
+
+            while (qh < qt)
+            {
+                int u = queue[qh++];
+                for (int e = head[u]; e >= 0; e = next[e])
+                {
+                    if (cap[e] > 0 && level[to[e]] < 0)
+                    {
+                        level[to[e]] = level[u] + 1;
+                        queue[qt++] = to[e];
+                    }
+                }
+            }
+            return level[sink] >= 0;
+        }
+
+        //------------------------------------------------------------------
+        // One augmenting path in the level graph (iterative DFS). It
+        // pushes one unit: every protein edge has capacity 1, so the
+        // total flow grows by one per path either way
+        //------------------------------------------------------------------
+        private boolean augment()
+        {
+            int depth = 0;
+            stackNode[0] = source;
+
+            while (depth >= 0)
+            {
+                int u = stackNode[depth];
+                if (u == sink)
+                {
+                    for (int d = 0; d < depth; d++)
+                    {
+                        int e = stackEdge[d];
+                        cap[e]     -= 1;
+                        cap[e ^ 1] += 1;
+                    }
+                    return true;
+                }
+
+                boolean advanced = false;
+                for (; iter[u] >= 0; iter[u] = next[iter[u]])
+                {
+                    int e = iter[u];
+                    if (cap[e] > 0 && level[to[e]] == level[u] + 1)
+                    {
+                        stackEdge[depth] = e;
+                        stackNode[++depth] = to[e];
+                        advanced = true;
+                        break;
+                    }
+                }
+                if (advanced) continue;
+
+                // dead end: remove u from the level graph and back up
+                level[u] = -1;
+                depth--;
+                if (depth >= 0) iter[stackNode[depth]] = next[iter[stackNode[depth]]];
+            }
+            return false;
+        }
+
+        // Max-flow, then the protein edges crossing the source side of the cut
+        int [] cut()
+        {
+            while (bfs())
+            {
+                System.arraycopy(head, 0, iter, 0, nodes);
+                while (augment()) { }
+            }
+
+            // source side: reachable in the residual graph (levels of the last BFS)
+            int count = 0;
+            for (int v = 0; v < n; v++)
+                if (level[in(v)] >= 0 && level[out(v)] < 0) count++;
+
+            int [] result = new int [count];
+            count = 0;
+            for (int v = 0; v < n; v++)
+                if (level[in(v)] >= 0 && level[out(v)] < 0) result[count++] = v;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/4/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Deterministic concentration model of the signaling network.
+//
+// Each protein j holds an activated fraction x[j] between 0 and 1.
+// Receptors are clamped at the input level. Every other protein obeys
+//
+//   dx[j]/dt = (1 - x[j]) * sum(k * h(x[i]))  over stimulating i --> j
+//            -      x[j]  * sum(k * h(x[i]))  over inhibiting  i --| j
+//            -  d * x[j]
+//
+// where h(x) = x^2 / (K^2 + x^2) is a Hill term. The system is integrated
+// with classic 4th order Runge-Kutta on primitive arrays. All stage buffers
+// are allocated once in the constructor, so integrate() creates no garbage.
+//--------------------------------------------------------------------
+
+class ConcentrationModel
+{
+    private SignalingGraph graph;  // network being integrated
+    private int n;                 // number of proteins
+
+    private double [] x;           // current concentrations
+    private double [] k1, k2, k3, k4, tmp;  // RK4 stage buffers
+
+    private int []    inStart;     // incoming terms of protein j are
+    private int []    inFrom;      // inFrom[inStart[j] .. inStart[j+1]-1]
+    private double [] inRate;      // with signed rate (+ stimulating, - inhibiting)
+    private boolean[] clamped;     // receptors are held at the input level
+
+    private double time;           // simulated time in seconds
+
+    public static final double INPUT_LEVEL = 1.0;  // receptor concentration
+    public static final double HILL_K      = 0.5;  // half activation concentration
+    public static final double DECAY       = 0.3;  // deactivation rate
+    public static final double MAX_STEP    = 0.02; // largest RK4 step in seconds
+
+    private static final double HILL_K2 = HILL_K * HILL_K;
+
+    public ConcentrationModel(SignalingGraph g)
+    {
+        graph = g;
+        n = graph.getNodeCount();
+
+        x   = new double [n];
+        k1  = new double [n];
+        k2  = new double [n];
+        k3  = new double [n];
+        k4  = new double [n];
+        tmp = new double [n];
+
+        clamped = new boolean [n];
+        inStart = new int [n + 1];
+        inFrom  = new int [graph.getEdgeCount()];
+        inRate  = new double [graph.getEdgeCount()];
+
+        // group incoming connections by target protein
+        for (int v = 0; v < n; v++)
+            for (int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+                inStart[graph.getTarget(e) + 1]++;
+        for (int v = 0; v < n; v++)
+            inStart[v + 1] += inStart[v];
+
+        int [] fill = new int [n];
+        for (int v = 0; v < n; v++)
+        {
+            for (int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+            {
+                int t = graph.getTarget(e);
+                int i = inStart[t] + fill[t]++;
+                inFrom[i] = v;
+                inRate[i] = graph.isStimulating(e) ? graph.getRate(e) : -graph.getRate(e);
+            }
+        }
+
+        for (int v = 0; v < n; v++)
+            clamped[v] = graph.isReceptor(v);
+
+        reset();
+    }
+
+    // All proteins inactive except receptors
+    public void reset()
+    {
+        time = 0.0;
+        for (int v = 0; v < n; v++)
+            x[v] = clamped[v] ? INPUT_LEVEL : 0.0;
+    }
+
+    public double getTime()                 { return time; }
+    public double getConcentration(int v)   { return x[v]; }
+    public SignalingGraph getGraph()        { return graph; }
+
+
+    //------------------------------------------------------------------
+    // Right hand side of the ODE: dxdt = f(state)
+    //------------------------------------------------------------------
+
+    private void derivative(double [] state, double [] dxdt)
+    {
+        for (int j = 0; j < n; j++)
+        {
+            if (clamped[j])
+            {
+                dxdt[j] = 0.0;
+                continue;
+            }
+
+            double stim = 0.0, inhib = 0.0;
+            for (int i = inStart[j]; i < inStart[j + 1]; i++)
+            {
+                double s = state[inFrom[i]];
+                double h = s * s / (HILL_K2 + s * s);
+                double k = inRate[i];
+                if (k > 0) stim  += k * h;
+                else       inhib -= k * h;
+            }
+
+            double xj = state[j];
+            dxdt[j] = (1.0 - xj) * stim - xj * inhib - DECAY * xj;
+        }
+    }
+
+
+    //------------------------------------------------------------------
+    // Advance the concentrations by dt seconds using RK4 sub-steps
+    // no larger than MAX_STEP
+    //------------------------------------------------------------------
+
+    public void integrate(double dt)
+    {
+        int steps = (int) Math.ceil(dt / MAX_STEP);
+        if (steps < 1) steps = 1;
+        double h = dt / steps;
+
+        for (int s = 0; s < steps; s++)
+            rk4Step(h);
+    }
+
+    private void rk4Step(double h)
+    {
+        derivative(x, k1);
+
+        for (int v = 0; v < n; v++) tmp[v] = x[v] + 0.5 * h * k1[v];
+        derivative(tmp, k2);
+
+        for (int v = 0; v < n; v++) tmp[v] = x[v] + 0.5 * h * k2[v];
+        derivative(tmp, k3);
+
+        for (int v = 0; v < n; v++) tmp[v] = x[v] + h * k3[v];
+        derivative(tmp, k4);
+
+        for (int v = 0; v < n; v++)
+            x[v] += h / 6.0 * (k1[v] + 2.0 * k2[v] + 2.0 * k3[v] + k4[v]);
+
+        time += h;
+    }
+
+
+    //------------------------------------------------------------------
+    // Copy concentrations to the protein elements for display
+    //------------------------------------------------------------------
+
+    public void store(ProteinElement [][] network)
+    {
+        for (int v = 0; v < n; v++)
+            network[graph.getRow(v)][graph.getCol(v)].setConcentration(x[v]);
+    }
+}
@@ -22,6 +22,11 @@ public class ConnectionElement
     private int toRow,   toCol;   // connection terminal
     private boolean stimulating;  // Stimulating or Inhibiting
     private boolean active;       // Active or inactive
+    private double  rate;         // Reaction rate constant (per second) for kinetics
+    private int     delay;        // Signal travel time (ms) in timed mode
+    
+    public static final double DEFAULT_RATE  = 1.0;
+    public static final int    DEFAULT_DELAY = 4000;
     
     public ConnectionElement() { }
     
@@ -33,6 +38,8 @@ public class ConnectionElement
         toCol   = endCol;
         stimulating = activating;
         active = false;
+        rate = DEFAULT_RATE;
+        delay = DEFAULT_DELAY;
     }
     
     public boolean isActive()      { return active;      }
@@ -41,6 +48,11 @@ public class ConnectionElement
     public int getFromCol()        { return fromCol;     }
     public int getToRow()          { return toRow;       }
     public int getToCol()          { return toCol;       }
+    public double getRate()        { return rate;        }
+    public int getDelay()          { return delay;       }
+    
+    public void setRate(double value)    { rate = value;   }
+    public void setDelay(int value)      { delay = value;  }
     
     public void setActive(boolean value) { active = value; }
     public boolean getActive()           { return active;  } 
@@ -118,6 +130,16 @@ public class ConnectionElement
     }
     
     
+    // Draw the connection as a plain line between cell centres,
+    // without arrow or T (for cells too small to show them)
+    public void DrawLine(Graphics g, int xStep, int yStep)
+    {
+        g.setColor(active ? Color.GREEN : Color.RED);
+        g.drawLine(xStep * fromCol + xStep/2, yStep * fromRow + yStep/2, 
+                   xStep * toCol   + xStep/2, yStep * toRow   + yStep/2);
+    }
+    
+    
     // Draw the connection element (-> or T)
     public void Draw(Graphics g, int xStep, int yStep)
     {
@@ -0,0 +1,121 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 7/10/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Spatial index of the connections of a protein grid, so only the
+// connections that can be seen in a viewport are drawn.
+//
+// The grid is split into BUCKET x BUCKET cell buckets; every connection
+// is listed in all buckets its bounding box touches. A query walks the
+// buckets of the visible cell range and returns each connection once.
+// Connections are wired when the pathways are created and never move,
+// so the index is built once.
+//--------------------------------------------------------------------
+
+class ConnectionIndex
+{
+    private ConnectionElement [] connections;   // all connections, by id
+    private int count;
+
+    private int rows, cols;
+    private int bucketRows, bucketCols;
+    private int [] bucketStart;                 // ids of bucket b: bucketIds[bucketStart[b] .. bucketStart[b+1]-1]
+    private int [] bucketIds;
+
+    private int [] seen;                        // query stamp per connection
+    private int    stamp;
+    private ConnectionElement [] result;        // query result
+
+    public static final int BUCKET = 8;
+
+    public ConnectionIndex(ProteinElement [][] network)
+    {
+        rows = network.length;
+        cols = network[0].length;
+        bucketRows = (rows + BUCKET - 1) / BUCKET;
+        bucketCols = (cols + BUCKET - 1) / BUCKET;
+
+        // collect the connections
+        count = 0;
+        for (int row = 0; row < rows; row++)
+            for (int col = 0; col < cols; col++)
+                count += network[row][col].getConnectionCount();
+
+        connections = new ConnectionElement [count];
+        int k = 0;
+        for (int row = 0; row < rows; row++)
+            for (int col = 0; col < cols; col++)
+                for (int i = 0; i < network[row][col].getConnectionCount(); i++)
+                    connections[k++] = network[row][col].getConnection(i);
+
+        // count, then fill the buckets of each bounding box
+        bucketStart = new int [bucketRows * bucketCols + 1];
+        for (int pass = 0; pass < 2; pass++)
+        {
+            int [] fill = pass == 1 ? bucketStart.clone() : null;
+            for (int id = 0; id < count; id++)
+            {
+                ConnectionElement ce = connections[id];
+                int br0 = Math.min(ce.getFromRow(), ce.getToRow()) / BUCKET;
+                int br1 = Math.max(ce.getFromRow(), ce.getToRow()) / BUCKET;
+                int bc0 = Math.min(ce.getFromCol(), ce.getToCol()) / BUCKET;
+                int bc1 = Math.max(ce.getFromCol(), ce.getToCol()) / BUCKET;
+
+                for (int br = br0; br <= br1; br++)
+                {
+                    for (int bc = bc0; bc <= bc1; bc++)
+                    {
+                        int b = br * bucketCols + bc;
+                        if (pass == 0) bucketStart[b + 1]++;
+                        else           bucketIds[fill[b]++] = id;
+                    }
+                }
+            }
+            if (pass == 0)
+            {
+                for (int b = 0; b < bucketRows * bucketCols; b++) bucketStart[b + 1] += bucketStart[b];
+                bucketIds = new int [bucketStart[bucketRows * bucketCols]];
+            }
+        }
+
+        seen   = new int [count];
+        result = new ConnectionElement [count];
+    }
+
+    public int getCount() { return count; }
+
+
+    //------------------------------------------------------------------
+    // Connections whose bounding box may meet cells (row0..row1,
+    // col0..col1). They are left in getResult(0 .. n-1); n is returned
+    //------------------------------------------------------------------
+
+    public int query(int row0, int col0, int row1, int col1)
+    {
+        int br0 = Math.max(0, row0) / BUCKET, br1 = Math.min(rows - 1, row1) / BUCKET;
+        int bc0 = Math.max(0, col0) / BUCKET, bc1 = Math.min(cols - 1, col1) / BUCKET;
+
+        stamp++;
+        int n = 0;
+        for (int br = br0; br <= br1; br++)
+        {
+            for (int bc = bc0; bc <= bc1; bc++)
+            {
+                int b = br * bucketCols + bc;
+                for (int i = bucketStart[b]; i < bucketStart[b + 1]; i++)
+                {
+                    int id = bucketIds[i];
+                    if (seen[id] == stamp) continue;
+                    seen[id] = stamp;
+                    result[n++] = connections[id];
+                }
+            }
+        }
+        return n;
+    }
+
+    public ConnectionElement getResult(int i) { return result[i]; }
+}
@@ -0,0 +1,202 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/22/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+//--------------------------------------------------------------------
+// Runs SuppressorControllers without ever blocking the game loop.
+//
+// Controllers are loaded with ServiceLoader and can be assigned to any
+// suppressor. On every tick the host first collects the answers of the
+// tasks started on the tick before, then fills a GridView snapshot and
+// starts one task per controlled suppressor. So a move is applied one
+// tick after it was asked for, and tick() only looks at finished
+// futures. An answer counts if it came within 'budget' of wall time;
+// a task still running at the next tick is cancelled (interrupted) and
+// the suppressor does not move.
+//
+// A controller that ignores the interrupt keeps its thread, but it is
+// not started again until that call returns, so one runaway bot never
+// piles up work. Every task has its own daemon thread, so it can not
+// hold up the other controllers' tasks either.
+//
+// A late task keeps reading the snapshot of the tick it was started
+// in, so the host keeps one GridView per suppressor plus one: each tick
+// refills a view that no running task holds.
+//--------------------------------------------------------------------
+
+class ControllerHost
+{
+    private SuppressorController [] available;   // all loaded controllers
+    private SuppressorController [] assigned;    // controller of each suppressor, null = keys
+    private List<Future<Integer>>   running;     // task asked on the last tick, null if none
+    private int []                  runningView; // view each task reads
+    private AtomicIntegerArray      state;       // IDLE, QUEUED or BUSY per suppressor
+    private long []                 wallUsed;    // nanoseconds the last finished call took
+
+    private GridView [] views;                   // snapshots, one free at every tick
+    private ExecutorService executor;
+    private long budget;                         // nanoseconds per answer
+    private int  tick;
+
+    private static final int IDLE = 0, QUEUED = 1, BUSY = 2;
+
+    public static final long DEFAULT_BUDGET = TimeUnit.MILLISECONDS.toNanos(20);
+
+    public ControllerHost(ProteinElement [][] ntk, Suppressor [] supp, DistanceField dist)
+    {
+        ArrayList<SuppressorController> list = new ArrayList<SuppressorController>();
+        try {
+            for (SuppressorController c : ServiceLoader.load(SuppressorController.class))
+                list.add(c);
+        }
+        catch (java.util.ServiceConfigurationError e) {
+            System.out.println("Could not load suppressor controllers: " + e.getMessage());
+        }
+        available = list.toArray(new SuppressorController [list.size()]);
+
+        assigned = new SuppressorController [supp.length];
+        running  = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < supp.length; i++) running.add(null);
+        runningView = new int [supp.length];
+        state    = new AtomicIntegerArray(supp.length);
+        wallUsed = new long [supp.length];
+        views    = new GridView [supp.length + 1];
+        for (int v = 0; v < views.length; v++)
+            views[v] = new GridView(ntk, supp, dist);
+        budget   = DEFAULT_BUDGET;
+    }
+
+    public int getControllerCount()               { return available.length; }
+    public SuppressorController getController(int i) { return available[i]; }
+
+    public void setBudget(long nanos) { budget = nanos; }
+    public long getBudget()           { return budget;  }
+
+    // Let controller 'name' drive suppressor 'sIndex' (null or unknown = keys)
+    public void assign(int sIndex, String name)
+    {
+        assigned[sIndex] = null;
+        for (SuppressorController c : available)
+            if (c.getName().equals(name)) assigned[sIndex] = c;
+    }
+
+    public boolean isControlled(int sIndex) { return assigned[sIndex] != null; }
+
+    public boolean anyControlled()
+    {
+        for (SuppressorController c : assigned)
+            if (c != null) return true;
+        return false;
+    }
+
+
+    //------------------------------------------------------------------
+    // Collect the controllers' answers to the last tick and ask them
+    // again. moves[i] receives a Suppressor direction (NONE if
+    // suppressor i is not controlled, or its controller was late, over
+    // budget or failed). Never waits for a controller
+    //------------------------------------------------------------------
+
+    public void tick(int [] moves)
+    {
+        for (int i = 0; i < assigned.length; i++)
+        {
+            moves[i] = Suppressor.NONE;
+            Future<Integer> f = running.get(i);
+            if (f == null) continue;
+            running.set(i, null);
+
+            if (!f.isDone())
+            {
+                f.cancel(true);                          // overdue: interrupt it
+                state.compareAndSet(i, QUEUED, IDLE);    // it never started
+                continue;
+            }
+            try {
+                int move = f.get();
+                if (wallUsed[i] <= budget && assigned[i] != null) moves[i] = move;
+            }
+            catch (Exception e) {
+                // the controller failed: no move
+            }
+        }
+
+        tick++;
+
+        // a snapshot no busy task reads (there are more views than tasks)
+        int free = 0;
+        while (isHeld(free)) free++;
+        GridView view = views[free];
+        view.update(tick);
+
+        for (int i = 0; i < assigned.length; i++)
+        {
+            if (assigned[i] == null || state.get(i) != IDLE) continue;
+            state.set(i, QUEUED);
+            runningView[i] = free;
+            running.set(i, executor().submit(task(assigned[i], view, i)));
+        }
+    }
+
+    // Is view v read by a task that has not returned yet?
+    private boolean isHeld(int v)
+    {
+        for (int i = 0; i < assigned.length; i++)
+            if (state.get(i) != IDLE && runningView[i] == v) return true;
+        return false;
+    }
+
+    private java.util.concurrent.Callable<Integer> task(final SuppressorController c, final GridView view, final int index)
+    {
+        return () -> {
+            if (!state.compareAndSet(index, QUEUED, BUSY)) return Suppressor.NONE;   // cancelled
+            try {
+                long begin = System.nanoTime();
+                int move = c.move(view, index);
+                wallUsed[index] = System.nanoTime() - begin;
+                return move;
+            }
+            finally {
+                state.set(index, IDLE);
+            }
+        };
+    }
+
+
+    //------------------------------------------------------------------
+    // Executor for controller tasks, created on first use
+    //------------------------------------------------------------------
+
+    private ExecutorService executor()
+    {
+        if (executor != null) return executor;
+
+        // platform threads: interruptible, and a runaway task only holds its own
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "suppressor-controller");
+            t.setDaemon(true);
+            return t;
+        });
+        return executor;
+    }
+
+    // Stop all controller tasks
+    public void shutdown()
+    {
+        if (executor != null) executor.shutdownNow();
+        executor = null;
+        for (int i = 0; i < running.size(); i++) running.set(i, null);
+        for (int i = 0; i < assigned.length; i++) state.compareAndSet(i, QUEUED, IDLE);
+    }
+}
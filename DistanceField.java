@@ -0,0 +1,374 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/14/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Precomputed distances used by hints, AI players and overlays.
+//
+//  1. Hop distance of every protein to the nearest nuclear protein,
+//     following connections of the active pathways (reverse BFS from
+//     all nuclear proteins). When the active pathway mask changes only
+//     the proteins of the pathways whose bits changed, and proteins
+//     whose shortest path went through them, are updated:
+//       - removed pathways: proteins that lost their last neighbour one
+//         hop closer to the nucleus are invalidated (cascading back),
+//         then re-relaxed from their still valid neighbours
+//       - added pathways: the newly active proteins are relaxed from
+//         their neighbours, and any shorter paths spread backwards
+//
+//  2. Walking distance (suppressor moves) between cells outside the
+//     restricted zone. Instead of an all pairs table (quadratic in the
+//     grid size) a field of distances to one target cell is built by
+//     BFS when that target is first asked about and kept in a small
+//     cache (CACHE_FIELDS fields, clock replacement). Players ask about
+//     few targets at a time (the cells of the signals they chase), so
+//     nearly every query is an O(1) lookup. Walking is symmetric, so a
+//     field cached for either end answers the query.
+//
+// All results are kept in primitive arrays.
+//--------------------------------------------------------------------
+
+class DistanceField
+{
+    private ProteinElement [][] network;  // reference to Signaling network
+    private GridState grid;               // active pathway mask of the network
+    private int rows, cols;
+
+    // Hops: graph of every protein, active or not
+    private SignalingGraph all;
+    private int []   nodeOf;        // node of each cell, -1 if no protein
+    private long []  member;        // pathway membership of each node
+    private int []   inStart;       // reverse edges: sources of node v are
+    private int []   inSource;      //   inSource[inStart[v] .. inStart[v+1]-1]
+    private int []   dist;          // hops to nucleus per node, UNREACHABLE if inactive or no path
+    private long     hopsMask;      // active pathway mask 'dist' is valid for
+
+    private int []     queue;       // circular work queue of nodes
+    private boolean [] queued;
+    private int        head, size;
+    private int []     invalid;     // nodes invalidated by a removal
+    private boolean [] isInvalid;
+
+    // Walking: fields of distances to one target cell
+    private int []   walkIndex;     // compact index of each walkable cell, -1 if restricted
+    private int []   walkCell;      // cell of each compact index
+    private int      walkCount;     // number of walkable cells
+    private short [][] fields;      // fields[slot][a]: moves from walkable a to the slot's target, -1 if unreachable
+    private int []   fieldTarget;   // walkable index of each slot's target, -1 if empty
+    private int []   fieldSlot;     // slot of each walkable target, -1 if not cached
+    private boolean [] fieldUsed;   // clock reference bit of each slot
+    private int      clock;         // next slot the clock looks at
+    private int []   walkQueue;
+
+    public static final int UNREACHABLE  = Integer.MAX_VALUE;
+    public static final int CACHE_FIELDS = 64;
+
+    public DistanceField(ProteinElement [][] ntk)
+    {
+        network = ntk;
+        grid    = network[0][0].getGrid();
+        rows    = network.length;
+        cols    = network[0].length;
+
+        buildGraph();
+        buildWalkable();
+    }
+
+
+    //------------------------------------------------------------------
+    // Hops from the protein at (row, col) to the nearest nuclear
+    // protein, UNREACHABLE if there is none or no path
+    //------------------------------------------------------------------
+
+    public int hopsToNucleus(int row, int col)
+    {
+        if (hopsMask != grid.getActivePathways())
+            updateHops(grid.getActivePathways());
+        int v = nodeOf[row * cols + col];
+        return v < 0 ? UNREACHABLE : dist[v];
+    }
+
+    // Time in milliseconds until a signal at (row, col) can damage the DNA
+    public int timeToDamage(int row, int col, int stepMillis)
+    {
+        int h = hopsToNucleus(row, col);
+        return h == UNREACHABLE ? UNREACHABLE : h * stepMillis;
+    }
+
+    private void buildGraph()
+    {
+        all = SignalingGraph.fromNetwork(network, false);
+        int n = all.getNodeCount();
+
+        nodeOf = new int [rows * cols];
+        java.util.Arrays.fill(nodeOf, -1);
+        member = new long [n];
+        for (int v = 0; v < n; v++)
+        {
+            nodeOf[all.getRow(v) * cols + all.getCol(v)] = v;
+            member[v] = network[all.getRow(v)][all.getCol(v)].getMembership();
+        }
+
+        inStart  = new int [n + 1];
+        inSource = new int [all.getEdgeCount()];
+        for (int v = 0; v < n; v++)
+        {
+            inStart[v + 1] = inStart[v];
+            for (int i = all.firstInEdge(v); i < all.firstInEdge(v + 1); i++)
+                inSource[inStart[v + 1]++] = all.getSource(all.getInEdge(i));
+        }
+
+        dist = new int [n];
+        java.util.Arrays.fill(dist, UNREACHABLE);   // nothing active (mask 0)
+        hopsMask = 0;
+
+        queue     = new int [n];
+        queued    = new boolean [n];
+        invalid   = new int [n];
+        isInvalid = new boolean [n];
+    }
+
+    private boolean active(int v, long mask) { return (member[v] & mask) != 0; }
+
+    // Hops of v from its out-neighbours active in 'mask'
+    private int fromNeighbours(int v, long mask)
+    {
+        if (all.isNuclear(v)) return 0;
+
+        int best = UNREACHABLE;
+        for (int e = all.firstEdge(v); e < all.firstEdge(v + 1); e++)
+        {
+            int w = all.getTarget(e);
+            if (active(w, mask) && dist[w] != UNREACHABLE && dist[w] + 1 < best)
+                best = dist[w] + 1;
+        }
+        return best;
+    }
+
+    private void push(int v)
+    {
+        if (queued[v]) return;
+        queued[v] = true;
+        queue[(head + size++) % queue.length] = v;
+    }
+
+    private int pop()
+    {
+        int v = queue[head];
+        head = (head + 1) % queue.length;
+        size--;
+        queued[v] = false;
+        return v;
+    }
+
+    // Spread shorter distances backwards from the queued nodes
+    private void relax(long mask)
+    {
+        while (size > 0)
+        {
+            int v = pop();
+            for (int i = inStart[v]; i < inStart[v + 1]; i++)
+            {
+                int u = inSource[i];
+                if (active(u, mask) && !all.isNuclear(u) && dist[v] + 1 < dist[u])
+                {
+                    dist[u] = dist[v] + 1;
+                    push(u);
+                }
+            }
+        }
+    }
+
+    //------------------------------------------------------------------
+    // Bring 'dist' from hopsMask to 'mask', touching only the proteins
+    // of the pathways whose bits changed and the proteins that depend
+    // on them
+    //------------------------------------------------------------------
+
+    private void updateHops(long mask)
+    {
+        long removed = hopsMask & ~mask;
+        long added   = mask & ~hopsMask;
+        int  n = all.getNodeCount();
+
+        if (removed != 0)
+        {
+            long kept = hopsMask & ~removed;
+            int invalidCount = 0;
+
+            // proteins switched off, and the proteins that may have used them
+            for (int v = 0; v < n; v++)
+            {
+                if ((member[v] & removed) == 0 || active(v, kept)) continue;
+                dist[v] = UNREACHABLE;
+                for (int i = inStart[v]; i < inStart[v + 1]; i++)
+                    push(inSource[i]);
+            }
+
+            // invalidate proteins without a neighbour one hop closer
+            while (size > 0)
+            {
+                int u = pop();
+                if (!active(u, kept) || isInvalid[u] || dist[u] == UNREACHABLE || dist[u] == 0) continue;
+                if (fromNeighbours(u, kept) == dist[u]) continue;   // still supported
+
+                isInvalid[u] = true;
+                invalid[invalidCount++] = u;
+                dist[u] = UNREACHABLE;
+                for (int i = inStart[u]; i < inStart[u + 1]; i++)
+                    push(inSource[i]);
+            }
+
+            // re-relax invalidated proteins from their valid neighbours
+            for (int k = 0; k < invalidCount; k++)
+            {
+                int u = invalid[k];
+                isInvalid[u] = false;
+                dist[u] = fromNeighbours(u, kept);
+                if (dist[u] != UNREACHABLE) push(u);
+            }
+            relax(kept);
+            hopsMask = kept;
+        }
+
+        if (added != 0)
+        {
+            // proteins switched on start from their neighbours
+            for (int v = 0; v < n; v++)
+            {
+                if ((member[v] & added) == 0 || active(v, hopsMask)) continue;
+                dist[v] = fromNeighbours(v, mask);
+                if (dist[v] != UNREACHABLE) push(v);
+            }
+            relax(mask);
+        }
+
+        hopsMask = mask;
+    }
+
+
+    //------------------------------------------------------------------
+    // Walkable cells and walking distances
+    //------------------------------------------------------------------
+
+    public boolean isWalkable(int row, int col)
+    {
+        return onGrid(row, col) && walkIndex[row * cols + col] >= 0;
+    }
+
+    //------------------------------------------------------------------
+    // Suppressor moves from (r1, c1) to (r2, c2), -1 if not possible
+    // (also for cells off the grid). Synchronized: controllers may ask
+    // from their own threads and a miss fills the field cache
+    //------------------------------------------------------------------
+
+    public synchronized int walkDistance(int r1, int c1, int r2, int c2)
+    {
+        if (!onGrid(r1, c1) || !onGrid(r2, c2)) return -1;
+        
+        int a = walkIndex[r1 * cols + c1];
+        int b = walkIndex[r2 * cols + c2];
+        if (a < 0 || b < 0) return -1;
+
+        if (fieldSlot[b] < 0 && fieldSlot[a] >= 0)
+        {
+            int t = a;  a = b;  b = t;     // use the field of the start cell
+        }
+        return field(b)[a];
+    }
+
+    private boolean onGrid(int row, int col) { return row >= 0 && col >= 0 && row < rows && col < cols; }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+
+    private void buildWalkable()
+    {
+        walkIndex = new int [rows * cols];
+        walkCell  = new int [rows * cols];
+        walkCount = 0;
+
+        for (int row = 0; row < rows; row++)
+        {
+            for (int col = 0; col < cols; col++)
+            {
+                boolean border = row == 0 || col == 0 || row == rows - 1 || col == cols - 1;
+                if (border || Utilities.inRestrictedZone(row, col))
+                {
+                    walkIndex[row * cols + col] = -1;
+                }
+                else
+                {
+                    walkIndex[row * cols + col] = walkCount;
+                    walkCell[walkCount++] = row * cols + col;
+                }
+            }
+        }
+
+        int slots = Math.min(CACHE_FIELDS, walkCount);
+        fields      = new short [slots][];
+        fieldTarget = new int [slots];
+        fieldUsed   = new boolean [slots];
+        fieldSlot   = new int [walkCount];
+        java.util.Arrays.fill(fieldTarget, -1);
+        java.util.Arrays.fill(fieldSlot, -1);
+        walkQueue = new int [walkCount];
+    }
+
+    // Field of distances to walkable cell b, built on a cache miss
+    private short [] field(int b)
+    {
+        int slot = fieldSlot[b];
+        if (slot >= 0)
+        {
+            fieldUsed[slot] = true;
+            return fields[slot];
+        }
+
+        // clock replacement: skip (and clear) recently used slots
+        while (fieldUsed[clock])
+        {
+            fieldUsed[clock] = false;
+            clock = (clock + 1) % fields.length;
+        }
+        slot  = clock;
+        clock = (clock + 1) % fields.length;
+
+        if (fieldTarget[slot] >= 0) fieldSlot[fieldTarget[slot]] = -1;
+        if (fields[slot] == null) fields[slot] = new short [walkCount];
+        fieldTarget[slot] = b;
+        fieldSlot[b]      = slot;
+        fieldUsed[slot]   = true;
+
+        short [] d = fields[slot];
+        java.util.Arrays.fill(d, (short) -1);
+
+        int head = 0, tail = 0;
+        d[b] = 0;
+        walkQueue[tail++] = b;
+        while (head < tail)
+        {
+            int a = walkQueue[head++];
+            int cell = walkCell[a];
+            int row = cell / cols, col = cell % cols;
+            short next = (short) (d[a] + 1);
+
+            for (int dir = 0; dir < 4; dir++)
+            {
+                int r = row + (dir == 0 ? -1 : dir == 1 ? 1 : 0);
+                int c = col + (dir == 2 ? -1 : dir == 3 ? 1 : 0);
+                if (r < 0 || c < 0 || r >= rows || c >= cols) continue;
+
+                int w = walkIndex[r * cols + c];
+                if (w >= 0 && d[w] < 0)
+                {
+                    d[w] = next;
+                    walkQueue[tail++] = w;
+                }
+            }
+        }
+        return d;
+    }
+}
@@ -0,0 +1,626 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 7/4/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+//--------------------------------------------------------------------
+// Optimal therapy: K static inhibitors (fixed suppressors) placed on
+// proteins to minimize the expected nuclear damage of the active
+// pathways.
+//
+// Signals spread from a receptor along every connection, and an
+// inhibited protein stops them. The damage of a placement is the
+// number of (receptor, nuclear protein) pairs still connected, i.e.
+// the expected nuclear hits of a signal entering at a random receptor
+// times the number of receptors.
+//
+// Branch-and-bound over the placements, choosing candidates in a fixed
+// order (best single inhibitor first):
+//
+//   - Only proteins on a receptor to nucleus path of the network left
+//     after the inhibitors placed so far are candidates.
+//   - Lower bound: a connected pair whose receptor and nuclear protein
+//     can not be separated with the inhibitors left (more vertex
+//     disjoint paths through the allowed candidates than inhibitors,
+//     found with unit max-flow) stays connected in every completion.
+//   - Subproblems depend only on the remaining relevant network, the
+//     candidates left and the inhibitors left, so their results are
+//     memoized under that key and shared by all branches reaching them.
+//   - The top levels of the tree run in parallel on the ForkJoin pool,
+//     sharing the best placement found so far.
+//--------------------------------------------------------------------
+
+class DrugPlacement
+{
+    private ProteinElement [][] network;     // reference to Signaling network
+    private GridState grid;                  // active pathway mask of the network
+    private int inhibitors;                  // K
+    private HashMap<Long, int[]> cache = new HashMap<Long, int[]>();   // mask -> therapy cells
+
+    public DrugPlacement(ProteinElement [][] ntk, int k)
+    {
+        network    = ntk;
+        grid       = network[0][0].getGrid();
+        inhibitors = k;
+    }
+
+
+    //------------------------------------------------------------------
+    // Cells (row*cols+col) of the optimal therapy for the active pathways
+    //------------------------------------------------------------------
+
+    public int [] getCells()
+    {
+        long mask = grid.getActivePathways();
+        int [] cells = cache.get(mask);
+        if (cells == null)
+        {
+            SignalingGraph g = SignalingGraph.fromNetwork(network, true);
+            int [] best = new Optimizer(g).solve(ForkJoinPool.commonPool(), inhibitors);
+
+            cells = new int [best.length];
+            for (int i = 0; i < best.length; i++)
+                cells[i] = g.getRow(best[i]) * g.getCols() + g.getCol(best[i]);
+            cache.put(mask, cells);
+        }
+        return cells;
+    }
+
+
+    //------------------------------------------------------------------
+    // Branch-and-bound search on one signaling graph
+    //------------------------------------------------------------------
+
+    static class Optimizer
+    {
+        private SignalingGraph g;
+        private int n;
+        private int words;                 // longs per protein bitset
+
+        private int [] candidates;         // proteins in branching order
+
+        private int    bestValue;          // incumbent damage
+        private int [] bestBlocks;         // incumbent inhibitors
+        private long   nodes;              // subproblems evaluated
+        private long   memoHits;
+
+        private ConcurrentHashMap<Key, Result> memo = new ConcurrentHashMap<Key, Result>();
+        private ThreadLocal<Scratch> scratch;
+
+        private static final int PARALLEL_DEPTH = 2;   // levels forked on the pool
+
+        Optimizer(SignalingGraph graph)
+        {
+            g     = graph;
+            n     = g.getNodeCount();
+            words = (n + 63) >>> 6;
+            scratch = ThreadLocal.withInitial(() -> new Scratch(g));
+        }
+
+        public int  getBestValue() { return bestValue; }
+        public long getNodes()     { return nodes;     }
+        public long getMemoHits()  { return memoHits;  }
+
+        // Damage with 'blocks' inhibited
+        public int damage(int [] blocks)
+        {
+            long [] blocked = new long [words];
+            for (int v : blocks) blocked[v >>> 6] |= 1L << v;
+            return scratch.get().damage(blocked);
+        }
+
+
+        //--------------------------------------------------------------
+        // Best placement of at most k inhibitors (fewer if more do not
+        // lower the damage)
+        //--------------------------------------------------------------
+
+        public int [] solve(ForkJoinPool pool, int k)
+        {
+            memo.clear();
+            nodes = memoHits = 0;
+
+            // candidates: relevant proteins, best single inhibitor first
+            Scratch s = scratch.get();
+            long [] none = new long [words];
+            long [] relevant = new long [words];
+            s.relevant(none, relevant);
+
+            ArrayList<Integer> list = new ArrayList<Integer>();
+            int [] gain = new int [n];
+            int base = s.damage(none);
+            for (int v = 0; v < n; v++)
+            {
+                if ((relevant[v >>> 6] & (1L << v)) == 0) continue;
+                long [] one = new long [words];
+                one[v >>> 6] |= 1L << v;
+                gain[v] = base - s.damage(one);
+                list.add(v);
+            }
+            list.sort((a, b) -> gain[b] != gain[a] ? gain[b] - gain[a] : a - b);
+
+            candidates = new int [list.size()];
+            for (int i = 0; i < candidates.length; i++) candidates[i] = list.get(i);
+
+            // greedy incumbent
+            long [] blocked = new long [words];
+            int [] greedy = new int [0];
+            bestValue = base;
+            for (int j = 0; j < k && bestValue > 0; j++)
+            {
+                int pick = -1, pickValue = bestValue;
+                for (int c : candidates)
+                {
+                    if ((blocked[c >>> 6] & (1L << c)) != 0) continue;
+                    blocked[c >>> 6] |= 1L << c;
+                    int d = s.damage(blocked);
+                    blocked[c >>> 6] &= ~(1L << c);
+                    if (d < pickValue) { pick = c; pickValue = d; }
+                }
+                if (pick < 0) break;
+                blocked[pick >>> 6] |= 1L << pick;
+                greedy = java.util.Arrays.copyOf(greedy, greedy.length + 1);
+                greedy[greedy.length - 1] = pick;
+                bestValue = pickValue;
+            }
+            bestBlocks = greedy;
+
+            pool.invoke(new SolveTask(new long [words], new int [0], 0, k));
+            return bestBlocks.clone();
+        }
+
+        private synchronized void offer(int value, int [] chosen, int [] more)
+        {
+            if (value >= bestValue) return;
+            bestValue  = value;
+            bestBlocks = new int [chosen.length + more.length];
+            System.arraycopy(chosen, 0, bestBlocks, 0, chosen.length);
+            System.arraycopy(more, 0, bestBlocks, chosen.length, more.length);
+        }
+
+        private synchronized int incumbent() { return bestValue; }
+
+        private synchronized void count(boolean hit)
+        {
+            nodes++;
+            if (hit) memoHits++;
+        }
+
+
+        //--------------------------------------------------------------
+        // Subproblem: 'chosen' inhibitors are placed ('blocked' as a
+        // bitset), candidates from index 'start' on may be added, 'k'
+        // inhibitors are left. The result is the best damage of the
+        // subproblem with the inhibitors added to reach it, or a lower
+        // bound if some branch was pruned
+        //--------------------------------------------------------------
+
+        class SolveTask extends RecursiveTask<Result>
+        {
+            private static final long serialVersionUID = 1L;
+
+            private long [] blocked;
+            private int []  chosen;
+            private int     start, k;
+
+            SolveTask(long [] Blocked, int [] Chosen, int Start, int K)
+            {
+                blocked = Blocked; chosen = Chosen; start = Start; k = K;
+            }
+
+            protected Result compute()
+            {
+                return solve(blocked, chosen, start, k);
+            }
+        }
+
+        private Result solve(long [] blocked, int [] chosen, int start, int k)
+        {
+            Scratch s = scratch.get();
+            int value = s.damage(blocked);
+            offer(value, chosen, new int [0]);
+            if (k == 0 || value == 0) { count(false); return new Result(value, true, new int [0]); }
+
+            long [] relevant = new long [words];
+            s.relevant(blocked, relevant);
+
+            long [] allowed = new long [words];
+            int allowedCount = 0;
+            for (int i = start; i < candidates.length; i++)
+            {
+                int c = candidates[i];
+                if ((relevant[c >>> 6] & (1L << c)) != 0) { allowed[c >>> 6] |= 1L << c; allowedCount++; }
+            }
+            if (allowedCount == 0) { count(false); return new Result(value, true, new int [0]); }
+
+            Key key = new Key(relevant, allowed, k);
+            Result known = memo.get(key);
+            count(known != null);
+            if (known != null)
+            {
+                if (known.exact) offer(known.value, chosen, known.blocks);
+                return known;
+            }
+
+            int bound = s.lowerBound(relevant, allowed, k);
+            if (bound >= incumbent()) return new Result(bound, false, null);
+
+            // branch on every allowed candidate as the next inhibitor
+            int [] next = new int [allowedCount];
+            for (int i = start, j = 0; i < candidates.length; i++)
+                if ((allowed[candidates[i] >>> 6] & (1L << candidates[i])) != 0) next[j++] = i;
+
+            Result [] results = new Result [next.length];
+            int [][] childChosen = new int [next.length][];
+            if (chosen.length < PARALLEL_DEPTH)
+            {
+                SolveTask [] tasks = new SolveTask [next.length];
+                for (int j = 0; j < next.length; j++)
+                {
+                    childChosen[j] = with(chosen, candidates[next[j]]);
+                    tasks[j] = new SolveTask(with(blocked, candidates[next[j]]), childChosen[j], next[j] + 1, k - 1);
+                }
+                RecursiveTask.invokeAll(tasks);
+                for (int j = 0; j < next.length; j++) results[j] = tasks[j].join();
+            }
+            else
+            {
+                for (int j = 0; j < next.length; j++)
+                {
+                    childChosen[j] = with(chosen, candidates[next[j]]);
+                    results[j] = solve(with(blocked, candidates[next[j]]), childChosen[j], next[j] + 1, k - 1);
+                }
+            }
+
+            // no further inhibitor is also a completion
+            Result best = new Result(value, true, new int [0]);
+            for (int j = 0; j < next.length; j++)
+            {
+                Result r = results[j];
+                if (!r.exact) best.exact = false;
+                if (r.value < best.value)
+                {
+                    best.value  = r.value;
+                    best.blocks = r.exact ? with(r.blocks, candidates[next[j]]) : null;
+                }
+            }
+            if (!best.exact) best.blocks = null;
+
+            memo.put(key, best);
+            return best;
+        }
+
+        private int [] with(int [] a, int v)
+        {
+            int [] b = java.util.Arrays.copyOf(a, a.length + 1);
+            b[a.length] = v;
+            return b;
+        }
+
+        private long [] with(long [] bits, int v)
+        {
+            long [] b = bits.clone();
+            b[v >>> 6] |= 1L << v;
+            return b;
+        }
+    }
+
+
+    //------------------------------------------------------------------
+    // Result of a subproblem: damage (a lower bound if not exact) and
+    // the inhibitors added in the subproblem to reach it
+    //------------------------------------------------------------------
+
+    static class Result
+    {
+        int     value;
+        boolean exact;
+        int []  blocks;
+
+        Result(int Value, boolean Exact, int [] Blocks) { value = Value; exact = Exact; blocks = Blocks; }
+    }
+
+    // Memo key: relevant proteins, allowed candidates, inhibitors left
+    static final class Key
+    {
+        private final long [] relevant, allowed;
+        private final int k, hash;
+
+        Key(long [] Relevant, long [] Allowed, int K)
+        {
+            relevant = Relevant; allowed = Allowed; k = K;
+            hash = 31 * (31 * java.util.Arrays.hashCode(relevant) + java.util.Arrays.hashCode(allowed)) + k;
+        }
+
+        public int hashCode() { return hash; }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return k == other.k && java.util.Arrays.equals(relevant, other.relevant) &&
+                   java.util.Arrays.equals(allowed, other.allowed);
+        }
+    }
+
+
+    //------------------------------------------------------------------
+    // Per thread work arrays for reachability and unit max-flow
+    //------------------------------------------------------------------
+
+    static class Scratch
+    {
+        private SignalingGraph g;
+        private int n;
+        private int [] queue, mark;
+        private boolean [] reached;
+        private int stamp;
+
+        // split node flow graph: v_in = 2v, v_out = 2v+1
+        private int [] nodeFlow;      // flow through protein v
+        private int [] edgeFlow;      // flow on connection e
+        private int [] parentNode, parentEdge;
+        private int [] seen;
+
+        Scratch(SignalingGraph graph)
+        {
+            g = graph;
+            n = g.getNodeCount();
+            int N = n, E = g.getEdgeCount();
+            queue   = new int [2 * N];
+            mark    = new int [N];
+            reached = new boolean [N];
+            nodeFlow   = new int [N];
+            edgeFlow   = new int [E];
+            parentNode = new int [2 * N];
+            parentEdge = new int [2 * N];
+            seen       = new int [2 * N];
+        }
+
+        private static boolean has(long [] bits, int v) { return (bits[v >>> 6] & (1L << v)) != 0; }
+
+        //--------------------------------------------------------------
+        // Connected (receptor, nuclear protein) pairs with 'blocked'
+        // proteins inhibited
+        //--------------------------------------------------------------
+
+        int damage(long [] blocked)
+        {
+            SignalingGraph graph = g;
+            int total = 0;
+            for (int r = 0; r < n; r++)
+            {
+                if (!graph.isReceptor(r) || has(blocked, r)) continue;
+
+                stamp++;
+                int head = 0, tail = 0;
+                queue[tail++] = r;
+                mark[r] = stamp;
+                while (head < tail)
+                {
+                    int v = queue[head++];
+                    if (graph.isNuclear(v)) total++;
+                    for (int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+                    {
+                        int w = graph.getTarget(e);
+                        if (mark[w] != stamp && !has(blocked, w)) { mark[w] = stamp; queue[tail++] = w; }
+                    }
+                }
+            }
+            return total;
+        }
+
+        // Unblocked proteins on some receptor to nucleus path
+        void relevant(long [] blocked, long [] result)
+        {
+            SignalingGraph graph = g;
+            java.util.Arrays.fill(reached, false);
+
+            int head = 0, tail = 0;
+            for (int v = 0; v < n; v++)
+                if (graph.isReceptor(v) && !has(blocked, v)) { reached[v] = true; queue[tail++] = v; }
+            while (head < tail)
+            {
+                int v = queue[head++];
+                for (int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+                {
+                    int w = graph.getTarget(e);
+                    if (!reached[w] && !has(blocked, w)) { reached[w] = true; queue[tail++] = w; }
+                }
+            }
+
+            stamp++;
+            head = tail = 0;
+            for (int v = 0; v < n; v++)
+                if (graph.isNuclear(v) && reached[v]) { mark[v] = stamp; queue[tail++] = v; }
+            while (head < tail)
+            {
+                int v = queue[head++];
+                for (int i = graph.firstInEdge(v); i < graph.firstInEdge(v + 1); i++)
+                {
+                    int u = graph.getSource(graph.getInEdge(i));
+                    if (mark[u] != stamp && reached[u]) { mark[u] = stamp; queue[tail++] = u; }
+                }
+            }
+
+            java.util.Arrays.fill(result, 0);
+            for (int v = 0; v < n; v++)
+                if (mark[v] == stamp) result[v >>> 6] |= 1L << v;
+        }
+
+
+        //--------------------------------------------------------------
+        // Pairs that stay connected whatever k 'allowed' proteins are
+        // inhibited: more than k vertex disjoint paths through allowed
+        // proteins (other relevant proteins can not be inhibited and
+        // have unlimited capacity)
+        //--------------------------------------------------------------
+
+        int lowerBound(long [] relevant, long [] allowed, int k)
+        {
+            SignalingGraph graph = g;
+            int bound = 0;
+            for (int r = 0; r < n; r++)
+            {
+                if (!graph.isReceptor(r) || !has(relevant, r)) continue;
+                for (int t = 0; t < n; t++)
+                {
+                    if (!graph.isNuclear(t) || !has(relevant, t)) continue;
+                    if (separation(r, t, relevant, allowed, k + 1) > k) bound++;
+                }
+            }
+            return bound;
+        }
+
+        //--------------------------------------------------------------
+        // Number of vertex disjoint r -> t paths through allowed
+        // proteins, counted up to 'limit': unit augmenting paths (BFS)
+        // on the split node graph, where v_in -> v_out has capacity 1
+        // for allowed proteins and is unlimited for the others
+        //--------------------------------------------------------------
+
+        private int separation(int r, int t, long [] relevant, long [] allowed, int limit)
+        {
+            if (joinedWithout(r, t, relevant, allowed)) return limit;
+
+            SignalingGraph graph = g;
+            java.util.Arrays.fill(nodeFlow, 0);
+            java.util.Arrays.fill(edgeFlow, 0);
+
+            int source = 2 * r, sink = 2 * t + 1;
+            int flow = 0;
+            while (flow < limit)
+            {
+                stamp++;
+                head = tail = 0;
+                push(source, -1, 0);
+
+                while (head < tail && seen[sink] != stamp)
+                {
+                    int x = queue[head++];
+                    int v = x >>> 1;
+
+                    if ((x & 1) == 0)
+                    {
+                        if (!has(allowed, v) || nodeFlow[v] == 0) push(2 * v + 1, x, NODE_ARC);
+                        for (int i = graph.firstInEdge(v); i < graph.firstInEdge(v + 1); i++)
+                        {
+                            int e = graph.getInEdge(i);
+                            if (edgeFlow[e] > 0) push(2 * graph.getSource(e) + 1, x, -2 - e);
+                        }
+                    }
+                    else
+                    {
+                        for (int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+                            if (has(relevant, graph.getTarget(e))) push(2 * graph.getTarget(e), x, e);
+                        if (nodeFlow[v] > 0) push(2 * v, x, NODE_ARC);
+                    }
+                }
+                if (seen[sink] != stamp) break;
+
+                // push one unit back along the parents
+                for (int y = sink; y != source; y = parentNode[y])
+                {
+                    int x = parentNode[y], arc = parentEdge[y];
+                    if (arc == NODE_ARC)  nodeFlow[y >>> 1] += (y & 1) == 1 ? 1 : -1;
+                    else if (arc >= 0)    edgeFlow[arc]++;
+                    else                  edgeFlow[-2 - arc]--;
+                }
+                flow++;
+            }
+            return flow;
+        }
+
+        private static final int NODE_ARC = -1;    // parent arc inside a protein
+        private int head, tail;                    // BFS queue of split nodes
+
+        private void push(int y, int x, int arc)
+        {
+            if (seen[y] == stamp) return;
+            seen[y] = stamp;
+            parentNode[y] = x;
+            parentEdge[y] = arc;
+            queue[tail++] = y;
+        }
+
+        // Is t reachable from r through proteins that can not be inhibited?
+        private boolean joinedWithout(int r, int t, long [] relevant, long [] allowed)
+        {
+            if (has(allowed, r) || has(allowed, t)) return false;
+
+            SignalingGraph graph = g;
+            stamp++;
+            head = tail = 0;
+            queue[tail++] = r;
+            mark[r] = stamp;
+            while (head < tail)
+            {
+                int v = queue[head++];
+                if (v == t) return true;
+                for (int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+                {
+                    int w = graph.getTarget(e);
+                    if (mark[w] != stamp && has(relevant, w) && !has(allowed, w)) { mark[w] = stamp; queue[tail++] = w; }
+                }
+            }
+            return false;
+        }
+    }
+
+
+    //------------------------------------------------------------------
+    // Optimal therapy for the given pathways:
+    //
+    //   java DrugPlacement [-pathways 4,5] [-k 4]
+    //------------------------------------------------------------------
+
+    public static void main(String [] args)
+    {
+        String pathwayList = null;
+        int k = 4;
+
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+                 if (args[i].equals("-pathways")) pathwayList = args[i + 1];
+            else if (args[i].equals("-k"))        k = Integer.parseInt(args[i + 1]);
+        }
+
+        GridState grid = new GridState(30, 30);
+        ProteinElement [][] network = new ProteinElement [30][30];
+        for (int row = 0; row < network.length; row++)
+            for (int col = 0; col < network[row].length; col++)
+                network[row][col] = new ProteinElement(row, col, grid);
+
+        Pathway [] pathways = new Pathway [Pathway.NAMES.length];
+        for (int i = 0; i < pathways.length; i++)
+        {
+            pathways[i] = new Pathway(i, Pathway.NAMES[i], Pathway.NAMES[i], network, null);
+            pathways[i].deactivate();
+        }
+        if (pathwayList == null)
+            for (int i = 0; i < pathways.length; i++) pathways[i].activate();
+        else
+            for (String p : pathwayList.split(",")) pathways[Integer.parseInt(p.trim())].activate();
+
+        SignalingGraph g = SignalingGraph.fromNetwork(network, true);
+        Optimizer opt = new Optimizer(g);
+
+        long begin = System.nanoTime();
+        int [] best = opt.solve(ForkJoinPool.commonPool(), k);
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+
+        StringBuilder names = new StringBuilder();
+        for (int v : best) names.append(' ').append(g.getName(v));
+        System.out.println(String.format("Damage %d -> %d with%s", opt.damage(new int [0]), opt.getBestValue(),
+                                         names.length() == 0 ? " no inhibitor" : names.toString()));
+        System.out.println(String.format("%d proteins, %d subproblems (%d memoized), %.3f s",
+                                         g.getNodeCount(), opt.getNodes(), opt.getMemoHits(), elapsed));
+    }
+}
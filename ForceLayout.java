@@ -0,0 +1,762 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 7/8/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//--------------------------------------------------------------------
+// Automatic grid placement of imported signaling networks.
+//
+//   1. Force-directed layout (Fruchterman-Reingold): connected proteins
+//      attract, all proteins repel. The repulsion of far away groups of
+//      proteins is taken from their centre of mass in a Barnes-Hut
+//      quadtree, so an iteration costs O(n log n) instead of O(n^2).
+//      The forces on all proteins are computed in parallel on the
+//      ForkJoin pool; the quadtree is rebuilt once per iteration.
+//   2. Snap: proteins, nearest to the centre first, take the free grid
+//      cell closest to their position.
+//   3. Crossing reduction: a protein moves to or swaps with a
+//      neighbouring cell when that lowers the crossings of the
+//      connections drawn between cell centres. Connections are kept in
+//      a bucket grid so only nearby connections are tested.
+//
+//   java ForceLayout [-proteins 20000] [-iterations 100] [-passes 2] [-seed 1]
+//--------------------------------------------------------------------
+
+class ForceLayout
+{
+    private SignalingGraph graph;
+    private int n;
+    private double [] x, y;           // layout positions (grid units)
+    private double [] dx, dy;         // displacement of the current iteration
+
+    private int    iterations = 100;
+    private double theta      = 0.8;  // Barnes-Hut opening ratio
+    private double gravity    = 0.05; // pull towards the centre
+    private double heat       = 1.0 / 16;  // first max move, share of the layout side
+    private double side;              // square layout area
+    private double k;                 // ideal connection length
+    private double temperature;       // max move per iteration
+
+    private QuadTree tree;
+
+    public ForceLayout(SignalingGraph g, int rows, int cols, long seed)
+    {
+        graph = g;
+        n     = g.getNodeCount();
+        side  = Math.min(rows, cols);
+        k     = Math.sqrt(side * side / Math.max(1, n));
+
+        x  = new double [n];
+        y  = new double [n];
+        dx = new double [n];
+        dy = new double [n];
+
+        g.firstInEdge(0);           // build the incoming lists before the parallel passes
+        radialStart(new Random(seed));
+        tree = new QuadTree(n);
+    }
+
+
+    //------------------------------------------------------------------
+    // Start like the game cell: the nucleus in the centre and every
+    // protein on a ring by its hops to the nearest nuclear protein.
+    // Each protein hangs below the protein it reaches the nucleus
+    // through, and every subtree gets an angle sector in proportion to
+    // its leaves, so the start has few crossings and the forces only
+    // have to even it out. Proteins that can not reach the nucleus go
+    // on the outermost ring
+    //------------------------------------------------------------------
+
+    private void radialStart(Random rand)
+    {
+        int [] depth  = new int [n];
+        int [] parent = new int [n];
+        int [] queue  = new int [n];
+        java.util.Arrays.fill(depth, -1);
+        java.util.Arrays.fill(parent, -1);
+
+        int head = 0, tail = 0;
+        for (int v = 0; v < n; v++)
+            if (graph.isNuclear(v)) { depth[v] = 0; queue[tail++] = v; }
+        while (head < tail)
+        {
+            int v = queue[head++];
+            for (int i = graph.firstInEdge(v); i < graph.firstInEdge(v + 1); i++)
+            {
+                int u = graph.getSource(graph.getInEdge(i));
+                if (depth[u] < 0) { depth[u] = depth[v] + 1; parent[u] = v; queue[tail++] = u; }
+            }
+        }
+        int maxDepth = 0;
+        for (int v = 0; v < n; v++) maxDepth = Math.max(maxDepth, depth[v]);
+        for (int v = 0; v < n; v++) if (depth[v] < 0) { depth[v] = maxDepth + 1; queue[tail++] = v; }
+
+        // children lists of the forest (CSR), in BFS order
+        int [] childStart = new int [n + 1];
+        for (int v = 0; v < n; v++) if (parent[v] >= 0) childStart[parent[v] + 1]++;
+        for (int v = 0; v < n; v++) childStart[v + 1] += childStart[v];
+        int [] children = new int [n];
+        int [] fill = new int [n];
+        for (int i = 0; i < n; i++)
+        {
+            int v = queue[i];
+            if (parent[v] >= 0) children[childStart[parent[v]] + fill[parent[v]]++] = v;
+        }
+
+        // leaves below each protein (children come later in BFS order)
+        double [] leaves = new double [n];
+        for (int i = n - 1; i >= 0; i--)
+        {
+            int v = queue[i];
+            if (leaves[v] == 0) leaves[v] = 1;
+            if (parent[v] >= 0) leaves[parent[v]] += leaves[v];
+        }
+
+        // angle sectors: roots share the circle, children share their parent's sector
+        double [] from = new double [n], width = new double [n];
+        double total = 0;
+        for (int v = 0; v < n; v++) if (parent[v] < 0) total += leaves[v];
+        double angle = 0;
+        for (int i = 0; i < n; i++)
+        {
+            int v = queue[i];
+            if (parent[v] >= 0) continue;
+            from[v]  = angle;
+            width[v] = 2 * Math.PI * leaves[v] / total;
+            angle   += width[v];
+        }
+        for (int i = 0; i < n; i++)
+        {
+            int v = queue[i];
+            double a = from[v];
+            for (int j = childStart[v]; j < childStart[v + 1]; j++)
+            {
+                int c = children[j];
+                from[c]  = a;
+                width[c] = width[v] * leaves[c] / leaves[v];
+                a += width[c];
+            }
+        }
+
+        double radius = side / 2 * 0.95;
+        for (int v = 0; v < n; v++)
+        {
+            double r = radius * (depth[v] + 0.5) / (maxDepth + 1.5);
+            double a = from[v] + width[v] / 2;
+            x[v] = side / 2 + r * Math.cos(a) + 0.1 * rand.nextGaussian();
+            y[v] = side / 2 + r * Math.sin(a) + 0.1 * rand.nextGaussian();
+        }
+    }
+
+    public void setIterations(int value) { iterations = value; }
+    public void setTheta(double value)   { theta      = value; }
+    public void setGravity(double value) { gravity    = value; }
+    public void setHeat(double value)    { heat       = value; }
+
+    public double getX(int v) { return x[v]; }
+    public double getY(int v) { return y[v]; }
+
+
+    //------------------------------------------------------------------
+    // Force-directed iterations with linear cooling. The first moves
+    // may be a good part of the layout (side * heat, not one connection
+    // length): crowded groups of the radial start have to spread out
+    // over many cells before the layout can settle
+    //------------------------------------------------------------------
+
+    public void run(ForkJoinPool pool)
+    {
+        for (int it = 0; it < iterations; it++)
+        {
+            temperature = side * heat * (1.0 - (double) it / iterations) + 0.01;
+            tree.build(x, y, n);
+            pool.invoke(new ForceTask(0, n));
+            for (int v = 0; v < n; v++)
+            {
+                x[v] += dx[v];
+                y[v] += dy[v];
+            }
+        }
+    }
+
+    class ForceTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private int begin, end;
+
+        ForceTask(int Begin, int End) { begin = Begin; end = End; }
+
+        protected void compute()
+        {
+            if (end - begin <= 512)
+            {
+                int []    stack = new int [QuadTree.STACK];   // scratch for the whole range
+                double [] force = new double [2];
+                for (int v = begin; v < end; v++) displacement(v, stack, force);
+                return;
+            }
+            int mid = (begin + end) >>> 1;
+            invokeAll(new ForceTask(begin, mid), new ForceTask(mid, end));
+        }
+    }
+
+    // Displacement of protein v: repulsion, attraction and gravity, capped by the temperature
+    private void displacement(int v, int [] stack, double [] force)
+    {
+        tree.repulsion(v, x[v], y[v], k * k, theta, stack, force);
+        double fx = force[0], fy = force[1];
+
+        for (int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+        {
+            int w = graph.getTarget(e);
+            double ax = x[w] - x[v], ay = y[w] - y[v];
+            double d = Math.sqrt(ax * ax + ay * ay);
+            fx += ax * d / k;
+            fy += ay * d / k;
+        }
+        for (int i = graph.firstInEdge(v); i < graph.firstInEdge(v + 1); i++)
+        {
+            int u = graph.getSource(graph.getInEdge(i));
+            double ax = x[u] - x[v], ay = y[u] - y[v];
+            double d = Math.sqrt(ax * ax + ay * ay);
+            fx += ax * d / k;
+            fy += ay * d / k;
+        }
+
+        fx += gravity * (side / 2 - x[v]);
+        fy += gravity * (side / 2 - y[v]);
+
+        double len = Math.sqrt(fx * fx + fy * fy);
+        double scale = len > temperature ? temperature / len : 1.0;
+        dx[v] = fx * scale;
+        dy[v] = fy * scale;
+    }
+
+
+    //------------------------------------------------------------------
+    // Barnes-Hut quadtree in arrays. Quads of one parent are allocated
+    // together: children of quad q are child[q] .. child[q]+3. A leaf
+    // holds one body (or several on one point, at the depth limit)
+    //------------------------------------------------------------------
+
+    static class QuadTree
+    {
+        private double [] qx, qy, qsize;     // corner and side of each quad
+        private double [] mass, mx, my;      // mass and mass weighted position sums
+        private int []    child;             // first child, -1 for a leaf
+        private int []    body;              // body of a leaf, -1 if empty
+        private int []    leaf;              // leaf holding each body
+        private int       quads;
+
+        private static final int MAX_DEPTH = 40;
+        static final int STACK = 4 * MAX_DEPTH + 4;   // size of the repulsion stack
+
+        QuadTree(int n) { allocate(Math.max(16, 4 * n)); leaf = new int [n]; }
+
+        private void allocate(int size)
+        {
+            qx = new double [size]; qy = new double [size]; qsize = new double [size];
+            mass = new double [size]; mx = new double [size]; my = new double [size];
+            child = new int [size]; body = new int [size];
+        }
+
+        private void grow()
+        {
+            int size = 2 * qx.length;
+            qx = java.util.Arrays.copyOf(qx, size);       qy = java.util.Arrays.copyOf(qy, size);
+            qsize = java.util.Arrays.copyOf(qsize, size); mass = java.util.Arrays.copyOf(mass, size);
+            mx = java.util.Arrays.copyOf(mx, size);       my = java.util.Arrays.copyOf(my, size);
+            child = java.util.Arrays.copyOf(child, size); body = java.util.Arrays.copyOf(body, size);
+        }
+
+        private int newQuad(double X, double Y, double size)
+        {
+            qx[quads] = X; qy[quads] = Y; qsize[quads] = size;
+            mass[quads] = mx[quads] = my[quads] = 0;
+            child[quads] = -1;
+            body[quads] = -1;
+            return quads++;
+        }
+
+        void build(double [] x, double [] y, int n)
+        {
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int v = 0; v < n; v++)
+            {
+                minX = Math.min(minX, x[v]); maxX = Math.max(maxX, x[v]);
+                minY = Math.min(minY, y[v]); maxY = Math.max(maxY, y[v]);
+            }
+            quads = 0;
+            newQuad(minX, minY, Math.max(1e-9, Math.max(maxX - minX, maxY - minY)) * 1.0001);
+            for (int v = 0; v < n; v++) insert(v, x, y);
+        }
+
+        private void insert(int v, double [] x, double [] y)
+        {
+            int q = 0;
+            for (int depth = 0; ; depth++)
+            {
+                mass[q] += 1;
+                mx[q]   += x[v];
+                my[q]   += y[v];
+
+                if (child[q] < 0)
+                {
+                    if (body[q] < 0 && mass[q] == 1) { body[q] = v; leaf[v] = q; return; }
+                    if (depth >= MAX_DEPTH) { leaf[v] = q; return; }   // coincident bodies stay together
+
+                    // split: move the old body one level down
+                    if (quads + 4 > qx.length) grow();
+                    double h = qsize[q] / 2;
+                    child[q] = quads;
+                    newQuad(qx[q],     qy[q],     h);
+                    newQuad(qx[q] + h, qy[q],     h);
+                    newQuad(qx[q],     qy[q] + h, h);
+                    newQuad(qx[q] + h, qy[q] + h, h);
+
+                    int old = body[q];
+                    body[q] = -1;
+                    if (old >= 0)
+                    {
+                        int c = child[q] + quadrant(q, x[old], y[old]);
+                        mass[c] = 1; mx[c] = x[old]; my[c] = y[old]; body[c] = old; leaf[old] = c;
+                    }
+                }
+                q = child[q] + quadrant(q, x[v], y[v]);
+            }
+        }
+
+        private int quadrant(int q, double X, double Y)
+        {
+            double h = qsize[q] / 2;
+            return (X >= qx[q] + h ? 1 : 0) + (Y >= qy[q] + h ? 2 : 0);
+        }
+
+        //--------------------------------------------------------------
+        // Repulsion k2 / d on body v at (X, Y) from all other bodies,
+        // written to force[0..1]; quads seen under an angle below theta
+        // count as one body. stack holds STACK quads and is reused by
+        // the caller. In v's own leaf only v itself is left out, so the
+        // bodies stacked with it at the depth limit still push it away
+        //--------------------------------------------------------------
+
+        void repulsion(int v, double X, double Y, double k2, double theta, int [] stack, double [] force)
+        {
+            double fx = 0, fy = 0;
+            int top = 0;
+            stack[top++] = 0;
+
+            while (top > 0)
+            {
+                int q = stack[--top];
+                double m = mass[q], sx = mx[q], sy = my[q];
+                if (q == leaf[v]) { m -= 1; sx -= X; sy -= Y; }
+                if (m <= 0) continue;
+
+                double cx = sx / m, cy = sy / m;
+                double ax = X - cx, ay = Y - cy;
+                double d2 = ax * ax + ay * ay;
+
+                if (child[q] < 0 || qsize[q] * qsize[q] < theta * theta * d2)
+                {
+                    if (d2 < 1e-6)
+                    {
+                        // on top of each other: push apart in a fixed direction
+                        ax = ((v * 0x9E3779B1) & 1023) / 1024.0 - 0.5;
+                        ay = ((v * 0x85EBCA6B) & 1023) / 1024.0 - 0.5;
+                        d2 = ax * ax + ay * ay + 1e-6;
+                    }
+                    fx += ax * k2 * m / d2;
+                    fy += ay * k2 * m / d2;
+                    continue;
+                }
+                for (int c = 0; c < 4; c++) stack[top++] = child[q] + c;
+            }
+            force[0] = fx;
+            force[1] = fy;
+        }
+    }
+
+
+    //------------------------------------------------------------------
+    // Snap to free cells of a rows x cols grid, reduce crossings, and
+    // return the graph with the new cells
+    //------------------------------------------------------------------
+
+    public SignalingGraph snap(int rows, int cols, int passes)
+    {
+        int [] row = new int [n], col = new int [n];
+        int [] occupant = new int [rows * cols];
+        java.util.Arrays.fill(occupant, -1);
+
+        // the layout is not bounded: fit its bounding box into the grid
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int v = 0; v < n; v++)
+        {
+            minX = Math.min(minX, x[v]); maxX = Math.max(maxX, x[v]);
+            minY = Math.min(minY, y[v]); maxY = Math.max(maxY, y[v]);
+        }
+        double scale = Math.min(cols / Math.max(1e-9, maxX - minX), rows / Math.max(1e-9, maxY - minY)) * 0.999;
+        double [] px = new double [n], py = new double [n];
+        for (int v = 0; v < n; v++)
+        {
+            px[v] = (x[v] - (minX + maxX) / 2) * scale + cols / 2.0;
+            py[v] = (y[v] - (minY + maxY) / 2) * scale + rows / 2.0;
+        }
+
+        // nearest to the centre first
+        Integer [] order = new Integer [n];
+        for (int v = 0; v < n; v++) order[v] = v;
+        double cx = cols / 2.0, cy = rows / 2.0;
+        java.util.Arrays.sort(order, (a, b) -> Double.compare(
+            (px[a] - cx) * (px[a] - cx) + (py[a] - cy) * (py[a] - cy),
+            (px[b] - cx) * (px[b] - cx) + (py[b] - cy) * (py[b] - cy)));
+
+        for (int v : order)
+        {
+            int cell = nearestFree(px[v], py[v], rows, cols, occupant);
+            occupant[cell] = v;
+            row[v] = cell / cols;
+            col[v] = cell % cols;
+        }
+
+        new CrossingReducer(graph, rows, cols, row, col, occupant).run(passes);
+
+        boolean [] rec = new boolean [n], nuc = new boolean [n];
+        String [] name = new String [n];
+        for (int v = 0; v < n; v++)
+        {
+            rec[v]  = graph.isReceptor(v);
+            nuc[v]  = graph.isNuclear(v);
+            name[v] = graph.getName(v);
+        }
+        int m = graph.getEdgeCount();
+        int [] start = new int [n + 1], target = new int [m];
+        boolean [] stim = new boolean [m];
+        double [] rate = new double [m];
+        for (int v = 0; v <= n; v++) start[v] = graph.firstEdge(v);
+        for (int e = 0; e < m; e++)
+        {
+            target[e] = graph.getTarget(e);
+            stim[e]   = graph.isStimulating(e);
+            rate[e]   = graph.getRate(e);
+        }
+        return new SignalingGraph(rows, cols, row, col, name, rec, nuc, start, target, stim, rate);
+    }
+
+    // Free cell nearest to (px, py), searched ring by ring
+    private static int nearestFree(double px, double py, int rows, int cols, int [] occupant)
+    {
+        int r0 = Math.max(0, Math.min(rows - 1, (int) py));
+        int c0 = Math.max(0, Math.min(cols - 1, (int) px));
+
+        for (int ring = 0; ring < Math.max(rows, cols); ring++)
+        {
+            int best = -1;
+            double bestD = Double.MAX_VALUE;
+            for (int r = r0 - ring; r <= r0 + ring; r++)
+            {
+                if (r < 0 || r >= rows) continue;
+                boolean edge = r == r0 - ring || r == r0 + ring;
+                for (int c = c0 - ring; c <= c0 + ring; c += edge ? 1 : 2 * Math.max(1, ring))
+                {
+                    if (c < 0 || c >= cols || occupant[r * cols + c] >= 0) continue;
+                    double d = (c + 0.5 - px) * (c + 0.5 - px) + (r + 0.5 - py) * (r + 0.5 - py);
+                    if (d < bestD) { bestD = d; best = r * cols + c; }
+                }
+            }
+            if (best >= 0) return best;
+        }
+        throw new IllegalStateException("Grid too small for the network");
+    }
+
+
+    //------------------------------------------------------------------
+    // Local moves that lower connection crossings. Connections are
+    // listed in the BUCKET x BUCKET cell buckets their line passes
+    // through (two crossing lines share the bucket of the crossing), and
+    // are moved to their new buckets when a protein moves
+    //------------------------------------------------------------------
+
+    static class CrossingReducer
+    {
+        private SignalingGraph g;
+        private int rows, cols;
+        private int [] row, col, occupant;
+        private int [] from;               // source protein of each connection
+
+        private int bucketRows, bucketCols;
+        private int [][] buckets;          // connection lists per bucket
+        private int []   bucketSize;
+        private int []   seen;             // stamp per connection
+        private int []   moved, tested;    // connections of the proteins being moved
+        private int []   path;             // buckets of one connection
+        private int      stamp;
+
+        private static final int BUCKET = 8;
+
+        CrossingReducer(SignalingGraph graph, int Rows, int Cols, int [] Row, int [] Col, int [] Occupant)
+        {
+            g = graph; rows = Rows; cols = Cols; row = Row; col = Col; occupant = Occupant;
+            bucketRows = (rows + BUCKET - 1) / BUCKET;
+            bucketCols = (cols + BUCKET - 1) / BUCKET;
+            buckets    = new int [bucketRows * bucketCols][4];
+            bucketSize = new int [bucketRows * bucketCols];
+            seen       = new int [g.getEdgeCount()];
+            from       = new int [g.getEdgeCount()];
+            moved      = new int [g.getEdgeCount()];
+            path       = new int [3 * (bucketRows + bucketCols) + 4];
+            tested     = new int [g.getEdgeCount()];
+            for (int v = 0; v < g.getNodeCount(); v++)
+                for (int e = g.firstEdge(v); e < g.firstEdge(v + 1); e++) from[e] = v;
+            for (int e = 0; e < g.getEdgeCount(); e++) index(e);
+        }
+
+        private int source(int e) { return from[e]; }
+
+        //--------------------------------------------------------------
+        // Buckets on the line of connection e between cell centres
+        // (grid traversal), returned in 'path'
+        //--------------------------------------------------------------
+
+        private int buckets(int e)
+        {
+            int u = source(e), w = g.getTarget(e);
+            double x0 = (col[u] + 0.5) / BUCKET, y0 = (row[u] + 0.5) / BUCKET;
+            double x1 = (col[w] + 0.5) / BUCKET, y1 = (row[w] + 0.5) / BUCKET;
+            int bx = (int) x0, by = (int) y0, ex = (int) x1, ey = (int) y1;
+
+            double ddx = x1 - x0, ddy = y1 - y0;
+            int sx = ddx > 0 ? 1 : -1, sy = ddy > 0 ? 1 : -1;
+            double tMaxX = ddx != 0 ? ((bx + (sx > 0 ? 1 : 0)) - x0) / ddx : Double.MAX_VALUE;
+            double tMaxY = ddy != 0 ? ((by + (sy > 0 ? 1 : 0)) - y0) / ddy : Double.MAX_VALUE;
+            double tDX = ddx != 0 ? sx / ddx : Double.MAX_VALUE;
+            double tDY = ddy != 0 ? sy / ddy : Double.MAX_VALUE;
+
+            int count = 0;
+            while (true)
+            {
+                path[count++] = by * bucketCols + bx;
+                if (bx == ex && by == ey) break;
+                if (tMaxX < tMaxY)      { tMaxX += tDX; bx += sx; }
+                else if (tMaxY < tMaxX) { tMaxY += tDY; by += sy; }
+                else
+                {
+                    // through a corner: also take a side bucket
+                    path[count++] = by * bucketCols + bx + sx;
+                    tMaxX += tDX; bx += sx;
+                    tMaxY += tDY; by += sy;
+                }
+            }
+            return count;
+        }
+
+        private void index(int e)
+        {
+            int count = buckets(e);
+            for (int i = 0; i < count; i++)
+            {
+                int b = path[i];
+                if (bucketSize[b] == buckets[b].length) buckets[b] = java.util.Arrays.copyOf(buckets[b], 2 * bucketSize[b]);
+                buckets[b][bucketSize[b]++] = e;
+            }
+        }
+
+        // Remove connection e from the buckets of its line
+        private void unindex(int e)
+        {
+            int count = buckets(e);
+            for (int i = 0; i < count; i++)
+            {
+                int b = path[i];
+                for (int j = 0; j < bucketSize[b]; j++)
+                {
+                    if (buckets[b][j] != e) continue;
+                    buckets[b][j] = buckets[b][--bucketSize[b]];
+                    break;
+                }
+            }
+        }
+
+        // Crossings of connection e with all others near it
+        private int crossings(int e)
+        {
+            int count = buckets(e);
+            stamp++;
+            seen[e] = stamp;
+            int crossed = 0;
+            for (int i = 0; i < count; i++)
+            {
+                int b = path[i];
+                for (int j = 0; j < bucketSize[b]; j++)
+                {
+                    int f = buckets[b][j];
+                    if (seen[f] == stamp) continue;
+                    seen[f] = stamp;
+                    if (cross(e, f)) crossed++;
+                }
+            }
+            return crossed;
+        }
+
+        private boolean cross(int e, int f)
+        {
+            int a = source(e), b = g.getTarget(e), c = source(f), d = g.getTarget(f);
+            if (a == c || a == d || b == c || b == d) return false;   // shared protein
+
+            long o1 = orient(a, b, c), o2 = orient(a, b, d);
+            long o3 = orient(c, d, a), o4 = orient(c, d, b);
+            return ((o1 > 0 && o2 < 0) || (o1 < 0 && o2 > 0)) && ((o3 > 0 && o4 < 0) || (o3 < 0 && o4 > 0));
+        }
+
+        private long orient(int p, int q, int r)
+        {
+            return (long) (col[q] - col[p]) * (row[r] - row[p]) - (long) (row[q] - row[p]) * (col[r] - col[p]);
+        }
+
+        // Crossings of all connections of v (and of u if u >= 0)
+        private int local(int v, int u)
+        {
+            int count = 0;
+            int m = incident(v, u, tested);
+            for (int i = 0; i < m; i++) count += crossings(tested[i]);
+            return count;
+        }
+
+        // Connections of v and u (u may be -1) into 'list', each once
+        private int incident(int v, int u, int [] list)
+        {
+            stamp++;
+            int count = 0;
+            for (int p = 0; p < 2; p++)
+            {
+                int a = p == 0 ? v : u;
+                if (a < 0) continue;
+                for (int e = g.firstEdge(a); e < g.firstEdge(a + 1); e++)
+                    if (seen[e] != stamp) { seen[e] = stamp; list[count++] = e; }
+                for (int i = g.firstInEdge(a); i < g.firstInEdge(a + 1); i++)
+                {
+                    int e = g.getInEdge(i);
+                    if (seen[e] != stamp) { seen[e] = stamp; list[count++] = e; }
+                }
+            }
+            return count;
+        }
+
+        // Move v to (r, c), swapping with its occupant
+        private void swap(int v, int r, int c)
+        {
+            int u = occupant[r * cols + c];
+            int count = incident(v, u, moved);
+            for (int i = 0; i < count; i++) unindex(moved[i]);
+
+            int vr = row[v], vc = col[v];
+            occupant[vr * cols + vc] = u;
+            occupant[r * cols + c]   = v;
+            row[v] = r;  col[v] = c;
+            if (u >= 0) { row[u] = vr; col[u] = vc; }
+
+            for (int i = 0; i < count; i++) index(moved[i]);
+        }
+
+        void run(int passes)
+        {
+            int n = g.getNodeCount();
+            for (int pass = 0; pass < passes; pass++)
+            {
+                int improved = 0;
+                for (int v = 0; v < n; v++)
+                {
+                    if (local(v, -1) == 0) continue;     // moves of u are tried from u
+
+                    for (int dr = -1; dr <= 1; dr++)
+                    {
+                        for (int dc = -1; dc <= 1; dc++)
+                        {
+                            int r = row[v] + dr, c = col[v] + dc;
+                            if ((dr == 0 && dc == 0) || r < 0 || r >= rows || c < 0 || c >= cols) continue;
+
+                            int u = occupant[r * cols + c];
+                            int before = local(v, u);
+                            if (before == 0) continue;
+
+                            int vr = row[v], vc = col[v];
+                            swap(v, r, c);
+                            if (local(v, u) < before) { improved++; continue; }
+                            swap(v, vr, vc);        // undo
+                        }
+                    }
+                }
+                if (improved == 0) break;
+            }
+        }
+    }
+
+    // Total connection crossings of graph g (each pair counted once)
+    public static int countCrossings(SignalingGraph g)
+    {
+        int n = g.getNodeCount();
+        int [] row = new int [n], col = new int [n];
+        int [] occupant = new int [g.getRows() * g.getCols()];
+        java.util.Arrays.fill(occupant, -1);
+        for (int v = 0; v < n; v++)
+        {
+            row[v] = g.getRow(v);
+            col[v] = g.getCol(v);
+            occupant[row[v] * g.getCols() + col[v]] = v;
+        }
+
+        CrossingReducer cr = new CrossingReducer(g, g.getRows(), g.getCols(), row, col, occupant);
+        long total = 0;
+        for (int e = 0; e < g.getEdgeCount(); e++) total += cr.crossings(e);
+        return (int) (total / 2);
+    }
+
+
+    public static void main(String [] args)
+    {
+        int proteins = 20000, iterations = 100, passes = 2;
+        long seed = 1;
+
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+                 if (args[i].equals("-proteins"))   proteins   = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("-iterations")) iterations = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("-passes"))     passes     = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("-seed"))       seed       = Long.parseLong(args[i + 1]);
+        }
+
+        // a generated network stands in for an imported one: its cells are
+        // only used to compare crossings, the layout starts from the radial
+        // positions (ignoring the generated cells)
+        NetworkGenerator gen = new NetworkGenerator(proteins, seed);
+        SignalingGraph g = gen.generate();
+        int side = gen.getSide();
+
+        long t0 = System.nanoTime();
+        ForceLayout layout = new ForceLayout(g, side, side, seed);
+        layout.setIterations(iterations);
+        layout.run(ForkJoinPool.commonPool());
+        long t1 = System.nanoTime();
+        SignalingGraph placed = layout.snap(side, side, 0);
+        long t2 = System.nanoTime();
+        int snapped = countCrossings(placed);
+        long t3 = System.nanoTime();
+        placed = layout.snap(side, side, passes);
+        long t4 = System.nanoTime();
+
+        System.out.println(String.format("%d proteins, %d connections on %dx%d", g.getNodeCount(), g.getEdgeCount(), side, side));
+        System.out.println(String.format("Forces   %8.1f ms (%d iterations)", (t1 - t0) / 1e6, iterations));
+        System.out.println(String.format("Snap     %8.1f ms", (t2 - t1) / 1e6));
+        System.out.println(String.format("Crossing %8.1f ms (%d passes)", (t4 - t3 - (t2 - t1)) / 1e6, passes));
+        System.out.println(String.format("Crossings: generated %d, radial start %d, after forces %d, reduced %d",
+                                         countCrossings(g), countCrossings(new ForceLayout(g, side, side, seed).snap(side, side, 0)),
+                                         snapped, countCrossings(placed)));
+    }
+}
@@ -0,0 +1,140 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/20/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Reinforcement learning environment on top of the headless game.
+//
+//   reset(seed)   starts a new episode and writes the first observation
+//   step(actions) applies one action per suppressor (a Suppressor
+//                 direction: NONE, UP, DOWN, LEFT or RIGHT) for one
+//                 suppressor tick and returns the reward
+//
+// The reward of a step is the score change: ScorePanel.WIN_POINT per
+// kill minus ScorePanel.LOSS_POINT per damage. An episode ends after
+// 'episodeTicks' ticks.
+//
+// The observation is kept in primitive arrays that are reused:
+//
+//   planes  PLANES bitplanes of the grid, WORDS longs each, with bit
+//           row*cols+col of plane
+//             ACTIVE      protein of an active pathway
+//             SIGNAL      oncogenic signal
+//             SUPPRESSOR  suppressor
+//   agents  cell (row*cols+col) of each suppressor
+//--------------------------------------------------------------------
+
+class GameEnvironment
+{
+    private HeadlessGame game;
+    private int   level;          // number of simulated pathways
+    private int   episodeTicks;   // ticks per episode
+    private int   lastScore;      // score before the current step
+
+    private long [] planes;       // observation bitplanes
+    private int []  agents;       // observation suppressor cells
+
+    public static final int ACTIVE     = 0;
+    public static final int SIGNAL     = 1;
+    public static final int SUPPRESSOR = 2;
+    public static final int PLANES     = 3;
+
+    public static final int CELLS  = HeadlessGame.SIZE * HeadlessGame.SIZE;
+    public static final int WORDS  = (CELLS + 63) >>> 6;     // longs per plane
+    public static final int AGENTS = HeadlessGame.NUM_SUPPRESSORS;
+    public static final int ACTIONS = 5;                     // NONE, UP, DOWN, LEFT, RIGHT
+
+    public GameEnvironment(int gameLevel, int ticks)
+    {
+        game = new HeadlessGame();
+        level = gameLevel;
+        episodeTicks = ticks;
+
+        planes = new long [PLANES * WORDS];
+        agents = new int [AGENTS];
+    }
+
+    public HeadlessGame getGame()  { return game;   }
+    public long []      getPlanes() { return planes; }
+    public int []       getAgents() { return agents; }
+
+    public void setPathwaysPreference(int pIndex, boolean selected) { game.setPathwaysPreference(pIndex, selected); }
+
+
+    //------------------------------------------------------------------
+    // Start a new episode
+    //------------------------------------------------------------------
+
+    public void reset(long seed)
+    {
+        game.reset(level, seed);
+        lastScore = 0;
+        observe();
+    }
+
+
+    //------------------------------------------------------------------
+    // Apply actions[offset + i] to suppressor i for one tick. Returns
+    // the reward; isDone() tells if the episode is over
+    //------------------------------------------------------------------
+
+    public int step(int [] actions) { return step(actions, 0); }
+
+    public int step(int [] actions, int offset)
+    {
+        game.tick(actions, offset);
+        observe();
+
+        int score  = game.getScore();
+        int reward = score - lastScore;
+        lastScore  = score;
+        return reward;
+    }
+
+    public boolean isDone() { return game.getTicks() >= episodeTicks; }
+
+
+    //------------------------------------------------------------------
+    // Copy the observation into 'planeOut' at 'planeOffset' and
+    // 'agentOut' at 'agentOffset' (used by the vectorized environment)
+    //------------------------------------------------------------------
+
+    public void copyObservation(long [] planeOut, int planeOffset, int [] agentOut, int agentOffset)
+    {
+        System.arraycopy(planes, 0, planeOut, planeOffset, PLANES * WORDS);
+        System.arraycopy(agents, 0, agentOut, agentOffset, AGENTS);
+    }
+
+    // Fill the bitplanes and the suppressor cells
+    private void observe()
+    {
+        ProteinElement [][] network = game.getNetwork();
+        int cols = network[0].length;
+
+        for (int w = 0; w < SUPPRESSOR * WORDS; w++) planes[w] = 0;
+
+        for (int row = 0; row < network.length; row++)
+        {
+            for (int col = 0; col < cols; col++)
+            {
+                ProteinElement pe = network[row][col];
+                if (!pe.hasProtein()) continue;
+
+                int cell = row * cols + col;
+                if (pe.getActive())
+                    planes[ACTIVE * WORDS + (cell >>> 6)] |= 1L << cell;
+                if (pe.hasOncogenicSignal())
+                    planes[SIGNAL * WORDS + (cell >>> 6)] |= 1L << cell;
+            }
+        }
+
+        // suppressor occupancy is already kept as a bitset
+        System.arraycopy(game.getGrid().getSuppressorBits(), 0, planes, SUPPRESSOR * WORDS, WORDS);
+
+        Suppressor [] s = game.getSuppressors();
+        for (int i = 0; i < AGENTS; i++)
+            agents[i] = s[i].getRow() * cols + s[i].getCol();
+    }
+}
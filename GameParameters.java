@@ -0,0 +1,99 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/26/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Game balance parameters of the headless game:
+//
+//   signalPeriod      ms between signal steps (oncoMoveTimer, 4000)
+//   winPoint          points per kill   (ScorePanel.WIN_POINT,  2)
+//   lossPoint         points per damage (ScorePanel.LOSS_POINT, 1)
+//   levelPathways     pathways simulated at level 1..6 (1..6)
+//   startRow/startCol suppressor start cells (Suppressor.START_ROW/COL)
+//
+// hash() is a 64 bit fingerprint of all values, used as the key of
+// cached sweep results.
+//--------------------------------------------------------------------
+
+class GameParameters
+{
+    private int   signalPeriod;
+    private int   winPoint;
+    private int   lossPoint;
+    private int[] levelPathways;   // index 1..MAX_LEVEL, index 0 unused
+    private int[] startRow;
+    private int[] startCol;
+
+    public static final int SUPPRESSOR_PERIOD = 300;   // ms between suppressor moves
+
+    // Parameters of the interactive game
+    public GameParameters()
+    {
+        this(4000, ScorePanel.WIN_POINT, ScorePanel.LOSS_POINT,
+             new int [] { 0, 1, 2, 3, 4, 5, 6 }, Suppressor.START_ROW, Suppressor.START_COL);
+    }
+
+    public GameParameters(int period, int win, int loss, int [] pathways, int [] rows, int [] cols)
+    {
+        signalPeriod  = period;
+        winPoint      = win;
+        lossPoint     = loss;
+        levelPathways = pathways.clone();
+        startRow      = rows.clone();
+        startCol      = cols.clone();
+    }
+
+    public int getSignalPeriod()         { return signalPeriod; }
+    public int getWinPoint()             { return winPoint;     }
+    public int getLossPoint()            { return lossPoint;    }
+    public int getPathways(int level)    { return levelPathways[level]; }
+    public int getStartRow(int i)        { return startRow[i];  }
+    public int getStartCol(int i)        { return startCol[i];  }
+
+    // Suppressor moves per signal step (at least 1)
+    public int getMovesPerStep() { return Math.max(1, signalPeriod / SUPPRESSOR_PERIOD); }
+
+    public int getScore(int kills, int damages) { return kills * winPoint - damages * lossPoint; }
+
+
+    //------------------------------------------------------------------
+    // 64 bit FNV-1a hash of all parameter values
+    //------------------------------------------------------------------
+
+    public long hash()
+    {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, signalPeriod);
+        h = mix(h, winPoint);
+        h = mix(h, lossPoint);
+        for (int p : levelPathways) h = mix(h, p);
+        for (int r : startRow)      h = mix(h, r);
+        for (int c : startCol)      h = mix(h, c);
+        return h;
+    }
+
+    static long mix(long h, long value)
+    {
+        for (int i = 0; i < 8; i++)
+        {
+            h ^= (value >>> (8 * i)) & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("period=").append(signalPeriod).append(" win=").append(winPoint)
+          .append(" loss=").append(lossPoint).append(" pathways=");
+        for (int l = 1; l < levelPathways.length; l++)
+            sb.append(l > 1 ? "/" : "").append(levelPathways[l]);
+        sb.append(" start=");
+        for (int i = 0; i < startRow.length; i++)
+            sb.append(i > 0 ? "/" : "").append(startRow[i]).append(':').append(startCol[i]);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,126 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/9/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// State shared by all ProteinElements of one protein grid.
+//
+// Every protein records which pathways it belongs to as a bitmask
+// (bit i = pathway i). The grid keeps the mask of currently active
+// pathways, so a protein is active exactly when the two masks share
+// a bit. Activating or deactivating a pathway only flips one bit here
+// and never touches proteins shared with other pathways.
+//
+// The grid also keeps a bitset of the cells occupied by suppressors
+// (bit row*cols+col), so signal propagation can test for a suppressor
+// at the target cell in O(1).
+//
+// A new game starts by advancing the epoch instead of clearing every
+// cell: ProteinElements, the suppressor bitset words and the tile
+// signal counts remember the epoch they were written in, and state
+// from an older epoch reads as cleared. A reset is O(1) whatever the
+// grid size.
+//
+// Protein and signal counts per tile (see TilePyramid) are kept here
+// too, for drawing the grid when zoomed far out, and optionally a
+// SignalHeatmap that collects signal traffic and nuclear damage.
+//--------------------------------------------------------------------
+
+class GridState
+{
+    private long activePathways;   // bit i set if pathway i is active
+    private int  signalStep;       // number of signal steps taken on this grid
+    
+    private int    cols;           // grid width for cell numbering
+    private long[] suppressorBits; // bit set for each cell occupied by a suppressor
+    private int [] suppressorEpoch;// epoch each word of suppressorBits was written in
+    private int    epoch = 1;      // current game
+    private TilePyramid tiles;     // protein and signal counts per tile
+    private SignalHeatmap heatmap; // traffic and damage history, null if not kept
+
+    public static final int MAX_PATHWAYS = 64;  // pathways that fit in the masks
+    
+    public GridState(int rows, int Cols)
+    {
+        cols = Cols;
+        suppressorBits = new long [(rows * cols + 63) >>> 6];
+        suppressorEpoch = new int [suppressorBits.length];
+        java.util.Arrays.fill(suppressorEpoch, epoch);
+        tiles = new TilePyramid(rows, cols);
+    }
+    
+    public TilePyramid getTiles()             { return tiles; }
+    
+    public SignalHeatmap getHeatmap()         { return heatmap; }
+    public void setHeatmap(SignalHeatmap h)   { heatmap = h;    }
+
+    public long getActivePathways()           { return activePathways; }
+    public boolean isPathwayActive(int id)    { return (activePathways & (1L << id)) != 0; }
+
+    public void setPathwayActive(int id, boolean value)
+    {
+        if (value) activePathways |=  (1L << id);
+        else       activePathways &= ~(1L << id);
+    }
+
+    //------------------------------------------------------------------
+    // Clear all signals and suppressors of the grid in O(1): cells
+    // written before this call read as empty from now on
+    //------------------------------------------------------------------
+    public void nextEpoch()
+    {
+        epoch++;
+        tiles.clearSignals();
+    }
+    
+    public int getEpoch()                     { return epoch; }
+
+    // Start a new signal step and return its number
+    public int nextStep()                     { return ++signalStep; }
+    public int getStep()                      { return signalStep;   }
+
+    // Suppressor occupancy of cell (row, col)
+    public boolean hasSuppressor(int row, int col)
+    {
+        int cell = row * cols + col;
+        return suppressorEpoch[cell >>> 6] == epoch && (suppressorBits[cell >>> 6] & (1L << cell)) != 0;
+    }
+    
+    public void setSuppressor(int row, int col, boolean value)
+    {
+        int cell = row * cols + col;
+        syncWord(cell >>> 6);
+        if (value) suppressorBits[cell >>> 6] |=  (1L << cell);
+        else       suppressorBits[cell >>> 6] &= ~(1L << cell);
+    }
+    
+    // Clear word w of suppressorBits if it was written in an older epoch
+    private void syncWord(int w)
+    {
+        if (suppressorEpoch[w] == epoch) return;
+        suppressorEpoch[w] = epoch;
+        suppressorBits[w] = 0;
+    }
+    
+    // All suppressor bits (stale words are cleared first)
+    public long [] getSuppressorBits()
+    {
+        for (int w = 0; w < suppressorBits.length; w++) syncWord(w);
+        return suppressorBits;
+    }
+    
+    // Is a protein with the given membership mask active?
+    public boolean isActive(long membership)  { return (membership & activePathways) != 0; }
+
+    //------------------------------------------------------------------
+    // Active pathway that moves the signal of a protein with the given
+    // membership: the lowest numbered one. -1 if none is active
+    //------------------------------------------------------------------
+    public int owner(long membership)
+    {
+        long m = membership & activePathways;
+        return m == 0 ? -1 : Long.numberOfTrailingZeros(m);
+    }
+}
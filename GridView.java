@@ -0,0 +1,121 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/22/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Read-only picture of the game grid handed to SuppressorControllers.
+//
+// The ControllerHost copies the state into a view at the start of a
+// tick (signals, active proteins and suppressors as bitsets, hop
+// distances and suppressor locations as int arrays), so controllers
+// running on other threads never touch the live ProteinElements. A
+// view is not refilled while a controller task still reads it.
+//--------------------------------------------------------------------
+
+class GridView
+{
+    private ProteinElement [][] network;   // source of the snapshot
+    private Suppressor [] suppressors;
+    private DistanceField distances;
+    private int rows, cols;
+
+    private long [] signalBits;     // cells with an oncogenic signal
+    private long [] activeBits;     // cells with a protein of an active pathway
+    private long [] suppressorBits; // cells with a suppressor
+    private int []  hops;           // hops to nucleus of each cell
+    private int []  suppressorRow;
+    private int []  suppressorCol;
+    private int     tick;           // tick number of this snapshot
+
+    public GridView(ProteinElement [][] ntk, Suppressor [] supp, DistanceField dist)
+    {
+        network     = ntk;
+        suppressors = supp;
+        distances   = dist;
+        rows = network.length;
+        cols = network[0].length;
+
+        int words = (rows * cols + 63) >>> 6;
+        signalBits     = new long [words];
+        activeBits     = new long [words];
+        suppressorBits = new long [words];
+        hops           = new int [rows * cols];
+        suppressorRow  = new int [suppressors.length];
+        suppressorCol  = new int [suppressors.length];
+    }
+
+
+    //------------------------------------------------------------------
+    // Copy the current game state (called on the game thread)
+    //------------------------------------------------------------------
+
+    void update(int tickNumber)
+    {
+        tick = tickNumber;
+        java.util.Arrays.fill(signalBits, 0);
+        java.util.Arrays.fill(activeBits, 0);
+
+        for (int row = 0; row < rows; row++)
+        {
+            for (int col = 0; col < cols; col++)
+            {
+                int cell = row * cols + col;
+                ProteinElement pe = network[row][col];
+
+                if (pe.hasProtein() && pe.getActive()) activeBits[cell >>> 6] |= 1L << cell;
+                if (pe.hasOncogenicSignal())           signalBits[cell >>> 6] |= 1L << cell;
+                hops[cell] = distances.hopsToNucleus(row, col);
+            }
+        }
+
+        System.arraycopy(network[0][0].getGrid().getSuppressorBits(), 0, suppressorBits, 0, suppressorBits.length);
+
+        for (int i = 0; i < suppressors.length; i++)
+        {
+            suppressorRow[i] = suppressors[i].getRow();
+            suppressorCol[i] = suppressors[i].getCol();
+        }
+    }
+
+    public int getRows()            { return rows; }
+    public int getCols()            { return cols; }
+    public int getTick()            { return tick; }
+    public int getSuppressorCount() { return suppressorRow.length; }
+
+    public int getSuppressorRow(int i) { return suppressorRow[i]; }
+    public int getSuppressorCol(int i) { return suppressorCol[i]; }
+
+    public boolean hasSignal(int row, int col)     { return test(signalBits, row, col);     }
+    public boolean isActive(int row, int col)      { return test(activeBits, row, col);     }
+    public boolean hasSuppressor(int row, int col) { return test(suppressorBits, row, col); }
+
+    // Can a suppressor stand on (row, col)? (never changes)
+    public boolean isWalkable(int row, int col)
+    {
+        return onGrid(row, col) && distances.isWalkable(row, col);
+    }
+
+    // Suppressor moves between two cells, -1 if not possible or off the grid (never changes)
+    public int walkDistance(int r1, int c1, int r2, int c2)
+    {
+        if (!onGrid(r1, c1) || !onGrid(r2, c2)) return -1;
+        return distances.walkDistance(r1, c1, r2, c2);
+    }
+
+    // Hops from (row, col) to the nucleus, DistanceField.UNREACHABLE if none or off the grid
+    public int hopsToNucleus(int row, int col) 
+    { 
+        return onGrid(row, col) ? hops[row * cols + col] : DistanceField.UNREACHABLE; 
+    }
+
+    private boolean onGrid(int row, int col) { return row >= 0 && col >= 0 && row < rows && col < cols; }
+
+    private boolean test(long [] bits, int row, int col)
+    {
+        if (!onGrid(row, col)) return false;
+        int cell = row * cols + col;
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+}
@@ -0,0 +1,235 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/16/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.util.Random;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+//--------------------------------------------------------------------
+// The SignalStorm game rules without any window, panel or timer.
+//
+// HeadlessGame owns its own protein grid, the 9 pathways and the 4
+// suppressors, and keeps kills and damages in plain counters. One
+// call to step() is one signal step (4000 ms in the interactive game);
+// suppressors get MOVES_PER_STEP moves (one per 300 ms) before it.
+// Timing, points, pathways per level and start cells can be changed
+// with GameParameters.
+//
+// Used to measure how well suppressor strategies (for example the
+// Autopilot) do at each level.
+//--------------------------------------------------------------------
+
+class HeadlessGame implements ScoreKeeper
+{
+    private ProteinElement [][] network;   // 2D array of Protein Elements
+    private GridState     grid;            // active pathways, suppressor occupancy
+    private Pathway []    pathways;        // all 9 pathways
+    private Suppressor [] suppressors;     // the 4 suppressors
+    private DistanceField distances;       // hops to nucleus and walking distances
+    private Random        rand;            // pathway selection
+
+    private boolean []    preference;      // pathway preference
+    private int           level;           // game level
+    private GameParameters params;         // balance parameters
+    private int           movesPerStep;    // suppressor ticks per signal step
+    private int           steps;           // signal steps taken
+    private int           ticks;           // suppressor ticks taken
+
+    private int           kills;           // signals killed
+    private int           damages;         // signals that reached the nucleus
+    private SignalStatistics stats;        // kills and damages per origin
+
+    public static final int SIZE            = 30;
+    public static final int NUM_SUPPRESSORS = 4;
+    public static final int MOVES_PER_STEP  = 4000 / 300;   // default suppressor moves per signal step
+
+    public HeadlessGame()
+    {
+        grid = new GridState(SIZE, SIZE);
+        network = new ProteinElement [SIZE][SIZE];
+        for (int row = 0; row < SIZE; row++)
+            for (int col = 0; col < SIZE; col++)
+                network[row][col] = new ProteinElement(row, col, grid);
+
+        pathways = new Pathway [Pathway.NAMES.length];
+        for (int i = 0; i < pathways.length; i++)
+            pathways[i] = new Pathway(i, Pathway.NAMES[i], Pathway.NAMES[i], network, this);
+
+        suppressors = new Suppressor [NUM_SUPPRESSORS];
+        for (int i = 0; i < NUM_SUPPRESSORS; i++)
+            suppressors[i] = new Suppressor(0, 0, network, this);
+
+        distances  = new DistanceField(network);
+        preference = new boolean [pathways.length];
+        stats      = new SignalStatistics();
+        rand       = new Random();
+        setParameters(new GameParameters());
+    }
+    
+    // Use balance parameters 'p' from the next reset on
+    public void setParameters(GameParameters p)
+    {
+        params = p;
+        movesPerStep = p.getMovesPerStep();
+    }
+
+    public GameParameters getParameters() { return params; }
+
+
+    //------------------------------------------------------------------
+    // Start a new game at 'gameLevel' with the given random seed.
+    // Preferred pathways are used first as in the interactive game.
+    //------------------------------------------------------------------
+
+    public void reset(int gameLevel, long seed)
+    {
+        level = gameLevel;
+        rand.setSeed(seed);
+
+        grid.nextEpoch();   // clear all signals and suppressors in O(1)
+
+        for (int i = 0; i < NUM_SUPPRESSORS; i++)
+            suppressors[i].set(params.getStartRow(i), params.getStartCol(i));
+
+        for (int i = 0; i < pathways.length; i++)
+            pathways[i].deactivate();
+
+        int [] simulated = new int [Math.min(params.getPathways(level), pathways.length)];
+        Pathway.decideSimulatedPathways(simulated, preference, rand);
+        for (int i = 0; i < simulated.length; i++)
+            pathways[simulated[i]].activate();
+
+        steps = ticks = kills = damages = 0;
+        stats.reset();
+    }
+
+    public void setPathwaysPreference(int pIndex, boolean selected) { preference[pIndex] = selected; }
+
+
+    //------------------------------------------------------------------
+    // Move the signals of all active pathways one step forward
+    //------------------------------------------------------------------
+
+    public void moveOncogenicSignals()
+    {
+        Pathway.stepAll(pathways, false);
+
+        if (grid.getHeatmap() != null) grid.getHeatmap().decay();
+        steps++;
+    }
+
+    //------------------------------------------------------------------
+    // One suppressor tick (300 ms): move suppressor i in direction
+    // moves[offset + i], and move the signals after every
+    // movesPerStep ticks
+    //------------------------------------------------------------------
+
+    public void tick(int [] moves) { tick(moves, 0); }
+
+    public void tick(int [] moves, int offset)
+    {
+        for (int i = 0; i < NUM_SUPPRESSORS; i++)
+            suppressors[i].move(moves[offset + i]);
+
+        if (++ticks % movesPerStep == 0)
+            moveOncogenicSignals();
+    }
+
+    // Play one signal step with the autopilot controlling the suppressors
+    public void step(Autopilot pilot, int [] moves)
+    {
+        for (int k = 0; k < movesPerStep; k++)
+        {
+            pilot.plan(moves);
+            tick(moves);
+        }
+    }
+
+    public void recordWin(int origin)
+    {
+        kills++;
+        stats.recordKill(origin);
+    }
+
+    public void recordLoss(int origin)
+    {
+        damages++;
+        stats.recordDamage(origin);
+    }
+
+    public int getKills()      { return kills;   }
+    public int getDamages()    { return damages; }
+    public int getSteps()      { return steps;   }
+    public int getTicks()      { return ticks;   }
+    public int getLevel()      { return level;   }
+    public GridState getGrid() { return grid;    }
+    public int getScore()      { return params.getScore(kills, damages); }
+    public int getMovesPerStep() { return movesPerStep; }
+
+    public ProteinElement [][] getNetwork()     { return network;     }
+    public Suppressor []       getSuppressors() { return suppressors; }
+    public Pathway []          getPathways()    { return pathways;    }
+    public DistanceField       getDistances()   { return distances;   }
+    public SignalStatistics    getStatistics()  { return stats;       }
+
+
+    //------------------------------------------------------------------
+    // Measure the autopilot at every level without any window:
+    //
+    //   java -Djava.awt.headless=true HeadlessGame [games] [steps] [heatmap.png]
+    //
+    // With a file name the traffic and damage heatmap of all games is
+    // saved to it as an image, one pixel per cell (without decay).
+    //------------------------------------------------------------------
+
+    public static void main(String [] args) throws IOException
+    {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+
+        HeadlessGame game = new HeadlessGame();
+        SignalHeatmap heatmap = null;
+        if (args.length > 2)
+        {
+            heatmap = new SignalHeatmap(SIZE, SIZE);
+            heatmap.setDecay(1.0f);
+            game.grid.setHeatmap(heatmap);
+        }
+        Autopilot pilot = new Autopilot(game.network, game.distances, game.suppressors);
+        for (int i = 0; i < NUM_SUPPRESSORS; i++) pilot.setEnabled(i, true);
+        int [] moves = new int [NUM_SUPPRESSORS];
+
+        for (int level = 1; level <= ScorePanel.MAX_LEVEL; level++)
+        {
+            long kills = 0, damages = 0, score = 0;
+            long begin = System.nanoTime();
+
+            for (int g = 0; g < games; g++)
+            {
+                game.reset(level, g);
+                for (int s = 0; s < steps; s++)
+                    game.step(pilot, moves);
+
+                kills   += game.getKills();
+                damages += game.getDamages();
+                score   += game.getScore();
+            }
+
+            double micros = (System.nanoTime() - begin) / 1e3 / ((double) games * steps * MOVES_PER_STEP);
+            System.out.println("Level " + level + ": average score " + String.format("%.2f", score / (double) games) +
+                               ", " + String.format("%.2f", kills / (double) games) + " Kills and " +
+                               String.format("%.2f", damages / (double) games) + " Damages" +
+                               String.format("  (%.1f us per autopilot tick)", micros));
+        }
+        
+        if (heatmap != null)
+        {
+            ImageIO.write(heatmap.getImage(), "png", new File(args[2]));
+            System.out.println("Heatmap written to " + args[2]);
+        }
+    }
+}
@@ -0,0 +1,390 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/28/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.io.*;
+import java.util.concurrent.ForkJoinPool;
+
+//--------------------------------------------------------------------
+// In-silico knockout sensitivity of the active pathways.
+//
+// The stochastic kinetics of the active network are simulated for a
+// warm-up prefix once, and the state is saved. Every knockout (each
+// protein, and optionally each pair of proteins) is then forked from
+// that snapshot with many seeds: the proteins are knocked out, the
+// simulation continues for 'horizon' seconds, and the nuclear hit rate
+// (damage rate) is measured. The baseline uses the same seeds without
+// a knockout.
+//
+// Only proteins on some receptor to nuclear path can change the damage
+// rate, so single knockouts of any other protein are not simulated.
+//
+// Pairs are O(n^2) simulations, so they are only formed among a few
+// candidates: the proteins of a minimum receptor to nucleus cut (if it
+// has at most 'pairTop' of them) and the proteins with the highest
+// single impact, 'pairTop' in all (0 = every relevant protein). A pair
+// (a, b) where b reaches the nucleus only through a can not do more
+// than a alone, so it takes a's rate without being simulated (found by
+// a backward search from the nucleus with a removed, per candidate).
+// So a pair run costs at most pairTop^2 / 2 simulations on any network.
+//
+// Knockouts run in parallel on the ForkJoin pool, one simulator per
+// worker thread. Each knockout is streamed as a CSV row when its seeds
+// are done, and single knockouts are ranked by impact at the end:
+//
+//   impact = 1 - damage rate with knockout / baseline damage rate
+//
+// Proteins are named with their cell, e.g. CDK4(16,16), since the game
+// has proteins of the same name in different pathways.
+//
+//   java KnockoutAnalysis [options]
+//     -pathways 4,5      active pathways of the game (all if omitted)
+//     -generate 1000     a generated network of 1000 proteins instead
+//     -pairs -top 32     also knock out pairs of the top 32 candidates
+//     -seeds 16 -prefix 20 -horizon 5 -seed 1 -out knockouts.csv
+//--------------------------------------------------------------------
+
+class KnockoutAnalysis
+{
+    private SignalingGraph graph;
+    private StochasticKinetics.Snapshot prefix;  // shared warm-up state
+    private int         seeds;                   // forks per knockout
+    private double      horizon;                 // seconds simulated per fork
+    private PrintWriter out;                      // streamed results
+
+    private int []      first, second;           // knockouts: proteins (second = -1 for single)
+    private double []   damage;                  // damage rate of each knockout
+    private double      baseline;                // damage rate without knockout
+    private boolean []  relevant;                // protein on a receptor to nuclear path
+    private int         pairTop = 32;            // pair candidates, 0 = all relevant proteins
+    private int []      candidate;               // candidate number of each protein, -1 if none
+    private boolean [][] reachesWithout;         // [candidate a][v]: v reaches the nucleus with a knocked out
+
+    private final ThreadLocal<StochasticKinetics> sims =
+        ThreadLocal.withInitial(() -> new StochasticKinetics(graph, 0));
+
+    public KnockoutAnalysis(SignalingGraph g, double prefixTime, int numSeeds, double horizonTime, PrintWriter csv)
+    {
+        graph   = g;
+        seeds   = numSeeds;
+        horizon = horizonTime;
+        out     = csv;
+
+        StochasticKinetics sim = new StochasticKinetics(graph, 1);
+        sim.run(prefixTime);
+        prefix = sim.snapshot();
+
+        findRelevant();
+    }
+
+
+    //------------------------------------------------------------------
+    // Proteins reachable from a receptor that can also reach a nuclear
+    // protein (forward and backward BFS)
+    //------------------------------------------------------------------
+
+    private void findRelevant()
+    {
+        int n = graph.getNodeCount();
+        boolean [] fromReceptor = new boolean [n];
+        boolean [] toNucleus    = new boolean [n];
+        int [] queue = new int [n];
+
+        int head = 0, tail = 0;
+        for (int v = 0; v < n; v++)
+            if (graph.isReceptor(v)) { fromReceptor[v] = true; queue[tail++] = v; }
+        while (head < tail)
+        {
+            int v = queue[head++];
+            for (int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+            {
+                int w = graph.getTarget(e);
+                if (!fromReceptor[w]) { fromReceptor[w] = true; queue[tail++] = w; }
+            }
+        }
+
+        head = tail = 0;
+        for (int v = 0; v < n; v++)
+            if (graph.isNuclear(v)) { toNucleus[v] = true; queue[tail++] = v; }
+        while (head < tail)
+        {
+            int v = queue[head++];
+            for (int i = graph.firstInEdge(v); i < graph.firstInEdge(v + 1); i++)
+            {
+                int u = graph.getSource(graph.getInEdge(i));
+                if (!toNucleus[u]) { toNucleus[u] = true; queue[tail++] = u; }
+            }
+        }
+
+        relevant = new boolean [n];
+        for (int v = 0; v < n; v++)
+            relevant[v] = fromReceptor[v] && toNucleus[v];
+    }
+
+
+    // Nodes that reach a nuclear protein without passing through a
+    // (backward BFS from the nucleus, a removed)
+    private boolean [] reachesNucleusWithout(int a)
+    {
+        int n = graph.getNodeCount();
+        boolean [] reach = new boolean [n];
+        int [] queue = new int [n];
+
+        int head = 0, tail = 0;
+        for (int v = 0; v < n; v++)
+            if (graph.isNuclear(v) && v != a) { reach[v] = true; queue[tail++] = v; }
+        while (head < tail)
+        {
+            int v = queue[head++];
+            for (int i = graph.firstInEdge(v); i < graph.firstInEdge(v + 1); i++)
+            {
+                int u = graph.getSource(graph.getInEdge(i));
+                if (u != a && !reach[u]) { reach[u] = true; queue[tail++] = u; }
+            }
+        }
+        return reach;
+    }
+
+    public void setPairTop(int value) { pairTop = value; }
+
+
+    //------------------------------------------------------------------
+    // Run the baseline and all knockouts
+    //------------------------------------------------------------------
+
+    public void run(ForkJoinPool pool, boolean pairs)
+    {
+        int n = graph.getNodeCount();
+
+        first  = new int [n];
+        second = new int [n];
+        damage = new double [n];
+        for (int v = 0; v < n; v++) { first[v] = v; second[v] = -1; }
+
+        baseline = damageRate(-1, -1);
+
+        out.println("knockout,proteins,damage_rate,impact");
+        out.println("none,0," + baseline + ",0");
+
+        // singles first: they choose the pair candidates
+        BatchRunner.run(pool, 0, n, 4, i -> knockout((int) i));
+
+        if (pairs)
+        {
+            int [] c = pairCandidates();
+            candidate = new int [n];
+            java.util.Arrays.fill(candidate, -1);
+            reachesWithout = new boolean [c.length][];
+            for (int i = 0; i < c.length; i++)
+            {
+                candidate[c[i]] = i;
+                reachesWithout[i] = reachesNucleusWithout(c[i]);
+            }
+
+            int count = n + c.length * (c.length - 1) / 2;
+            first  = java.util.Arrays.copyOf(first, count);
+            second = java.util.Arrays.copyOf(second, count);
+            damage = java.util.Arrays.copyOf(damage, count);
+            int k = n;
+            for (int i = 0; i < c.length; i++)
+                for (int j = i + 1; j < c.length; j++)
+                {
+                    first[k]  = Math.min(c[i], c[j]);
+                    second[k] = Math.max(c[i], c[j]);
+                    k++;
+                }
+            BatchRunner.run(pool, n, count, 4, i -> knockout((int) i));
+        }
+        out.flush();
+    }
+
+    //------------------------------------------------------------------
+    // Pair candidates: the minimum cut proteins if there are at most
+    // pairTop of them, then the other relevant proteins by single
+    // impact, pairTop in all (every relevant protein if pairTop is 0)
+    //------------------------------------------------------------------
+
+    private int [] pairCandidates()
+    {
+        int n = graph.getNodeCount();
+        boolean [] chosen = new boolean [n];
+        int [] list = new int [n];
+        int count = 0;
+        int limit = pairTop > 0 ? pairTop : n;
+
+        int [] cut = ChokePoints.minimumCut(graph);
+        if (cut.length <= limit)
+            for (int v : cut)
+                if (relevant[v]) { chosen[v] = true; list[count++] = v; }
+
+        Integer [] order = new Integer [n];
+        for (int v = 0; v < n; v++) order[v] = v;
+        java.util.Arrays.sort(order, (x, y) -> Double.compare(impact(y), impact(x)));
+        for (int i = 0; i < n && count < limit; i++)
+        {
+            int v = order[i];
+            if (relevant[v] && !chosen[v]) { chosen[v] = true; list[count++] = v; }
+        }
+        return java.util.Arrays.copyOf(list, count);
+    }
+
+    // Simulate (or derive) knockout k and report it
+    private void knockout(int k)
+    {
+        damage[k] = pairShortcut(k);
+        if (damage[k] < 0) damage[k] = damageRate(first[k], second[k]);
+        report(k);
+    }
+
+    // Damage rate of pair k known from single knockouts, -1 if it must be simulated
+    private double pairShortcut(int k)
+    {
+        int a = first[k], b = second[k];
+        if (b < 0) return relevant[a] ? -1 : baseline;
+
+        if (!relevant[a]) return damage[b];
+        if (!relevant[b]) return damage[a];
+
+        // one feeds the nucleus only through the other
+        if (!reachesWithout[candidate[a]][b]) return damage[a];
+        if (!reachesWithout[candidate[b]][a]) return damage[b];
+        return -1;
+    }
+
+    // Average nuclear hit rate over all seeds with proteins a and b (-1 = none) knocked out
+    private double damageRate(int a, int b)
+    {
+        StochasticKinetics sim = sims.get();
+        long hits = 0;
+
+        for (int s = 0; s < seeds; s++)
+        {
+            sim.restore(prefix, s + 1);
+            if (a >= 0) sim.setKnockedOut(a, true);
+            if (b >= 0) sim.setKnockedOut(b, true);
+
+            long before = sim.getNuclearHits();
+            sim.run(sim.getTime() + horizon);
+            hits += sim.getNuclearHits() - before;
+        }
+        return hits / (seeds * horizon);
+    }
+
+    // Proteins of knockout k with their cells, e.g. CDK4(16,16)+ERK(12,9)
+    private String name(int k)
+    {
+        String s = protein(first[k]);
+        return second[k] < 0 ? s : s + "+" + protein(second[k]);
+    }
+
+    private String protein(int v)
+    {
+        return graph.getName(v) + "(" + graph.getRow(v) + "," + graph.getCol(v) + ")";
+    }
+
+    private double impact(int k)
+    {
+        return baseline > 0 ? 1.0 - damage[k] / baseline : 0.0;
+    }
+
+    private synchronized void report(int k)
+    {
+        out.println("\"" + name(k) + "\"," + (second[k] < 0 ? 1 : 2) + "," + damage[k] + "," + impact(k));
+    }
+
+
+    //------------------------------------------------------------------
+    // Proteins ranked by single knockout impact
+    //------------------------------------------------------------------
+
+    public void printRanking(PrintStream ps, int top)
+    {
+        int n = graph.getNodeCount();
+        Integer [] order = new Integer [n];
+        for (int v = 0; v < n; v++) order[v] = v;
+        java.util.Arrays.sort(order, (x, y) -> Double.compare(impact(y), impact(x)));
+
+        ps.println(String.format("Baseline damage rate %.3f per second", baseline));
+        for (int i = 0; i < Math.min(top, n); i++)
+        {
+            int k = order[i];
+            ps.println(String.format("%3d. %-18s damage %8.3f  impact %6.1f%%", i + 1, name(k), damage[k], 100 * impact(k)));
+        }
+
+        // strongest pairs beyond the sum of their single knockouts
+        if (damage.length > n)
+        {
+            int best = -1;
+            double bestExtra = 0;
+            for (int k = n; k < damage.length; k++)
+            {
+                double extra = impact(k) - Math.max(impact(first[k]), impact(second[k]));
+                if (best < 0 || extra > bestExtra) { best = k; bestExtra = extra; }
+            }
+            ps.println(String.format("Most synergistic pair: %s (impact %.1f%%, %.1f%% above best single)",
+                                     name(best), 100 * impact(best), 100 * bestExtra));
+        }
+    }
+
+
+    public static void main(String [] args) throws IOException
+    {
+        String pathwayList = null, outName = "knockouts.csv";
+        boolean pairs = false;
+        int seeds = 16, generate = 0, top = 32;
+        long seed = 1;
+        double prefixTime = 20, horizon = 5;
+
+        for (int i = 0; i < args.length; i++)
+        {
+                 if (args[i].equals("-pairs"))    pairs = true;
+            else if (i + 1 >= args.length)        break;
+            else if (args[i].equals("-pathways")) pathwayList = args[++i];
+            else if (args[i].equals("-generate")) generate    = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-top"))      top         = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-seed"))     seed        = Long.parseLong(args[++i]);
+            else if (args[i].equals("-seeds"))    seeds       = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-prefix"))   prefixTime  = Double.parseDouble(args[++i]);
+            else if (args[i].equals("-horizon"))  horizon     = Double.parseDouble(args[++i]);
+            else if (args[i].equals("-out"))      outName     = args[++i];
+        }
+
+        SignalingGraph g = generate > 0 ? new NetworkGenerator(generate, seed).generate() : gameNetwork(pathwayList);
+        PrintWriter csv = new PrintWriter(new BufferedWriter(new FileWriter(outName)));
+
+        long begin = System.nanoTime();
+        KnockoutAnalysis analysis = new KnockoutAnalysis(g, prefixTime, seeds, horizon, csv);
+        analysis.setPairTop(top);
+        analysis.run(ForkJoinPool.commonPool(), pairs);
+        csv.close();
+
+        analysis.printRanking(System.out, 15);
+        System.out.println(String.format("%d proteins, done in %.1f s, results in %s",
+                                         g.getNodeCount(), (System.nanoTime() - begin) / 1e9, outName));
+    }
+
+    // The game's network with the given pathways active (all if null)
+    private static SignalingGraph gameNetwork(String pathwayList)
+    {
+        GridState grid = new GridState(30, 30);
+        ProteinElement [][] network = new ProteinElement [30][30];
+        for (int row = 0; row < network.length; row++)
+            for (int col = 0; col < network[row].length; col++)
+                network[row][col] = new ProteinElement(row, col, grid);
+
+        Pathway [] pathways = new Pathway [Pathway.NAMES.length];
+        for (int i = 0; i < pathways.length; i++)
+        {
+            pathways[i] = new Pathway(i, Pathway.NAMES[i], Pathway.NAMES[i], network, null);
+            pathways[i].deactivate();
+        }
+        if (pathwayList == null)
+            for (int i = 0; i < pathways.length; i++) pathways[i].activate();
+        else
+            for (String p : pathwayList.split(",")) pathways[Integer.parseInt(p.trim())].activate();
+
+        return SignalingGraph.fromNetwork(network, true);
+    }
+}
@@ -0,0 +1,457 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 7/6/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+//--------------------------------------------------------------------
+// Procedural signaling networks for scaling tests.
+//
+// A network of n proteins is laid out like the game cell: proteins are
+// scattered over a square grid (density = proteins per cell), nuclear
+// proteins take the innermost rings around the centre and receptors
+// the outermost rings. Signals flow inwards: every protein connects to
+// the protein nearest its angle (give or take a cell and a half of arc)
+// on the next inner occupied ring, and a few connections stay on the
+// same ring, giving feedback loops. So connections are short (about 7
+// cells at the default density, on any grid size) with about 0.3
+// crossings per connection. Every protein but a receptor also gets at
+// least one input.
+//
+// Out-degrees are drawn from a Poisson or power law distribution with
+// the given mean and capped at ProteinElement.MAXCONNECTIONS, and a
+// given fraction of the connections are inhibiting. The same seed
+// always gives the same network.
+//
+// generate() builds the SignalingGraph directly (fine for millions of
+// proteins); createNetwork() builds the ProteinElement grid of a
+// generated graph, the same structure Pathway.createSignalingNetwork
+// wires up, and createPathway() a Pathway over it, so signals can be
+// stepped and drawn with the game's own code. (The game window itself
+// only plays its fixed 30x30 cell.)
+//--------------------------------------------------------------------
+
+class NetworkGenerator
+{
+    private int     proteins;
+    private long    seed;
+    private double  density          = 0.1;    // proteins per grid cell (game: 82 / 900)
+    private double  meanDegree       = 1.5;    // mean outgoing connections
+    private boolean powerLaw         = false;  // power law instead of Poisson degrees
+    private double  exponent         = 2.5;    // power law exponent
+    private double  receptorFraction = 0.12;
+    private double  nuclearFraction  = 0.05;
+    private double  inhibitFraction  = 0.2;    // inhibiting connections
+    private double  lateralFraction  = 0.1;    // connections within the same ring
+
+    public static final int MAX_DEGREE = ProteinElement.MAXCONNECTIONS;
+
+    public NetworkGenerator(int n, long Seed)
+    {
+        proteins = n;
+        seed     = Seed;
+    }
+
+    public void setDensity(double value)          { density          = value; }
+    public void setMeanDegree(double value)       { meanDegree       = value; }
+    public void setPowerLaw(double exp)           { powerLaw = true; exponent = exp; }
+    public void setPoisson()                      { powerLaw = false; }
+    public void setReceptorFraction(double value) { receptorFraction = value; }
+    public void setNuclearFraction(double value)  { nuclearFraction  = value; }
+    public void setInhibitFraction(double value)  { inhibitFraction  = value; }
+    public void setLateralFraction(double value)  { lateralFraction  = value; }
+
+    // Side of the square grid holding the proteins
+    public int getSide()
+    {
+        return Math.max(3, (int) Math.ceil(Math.sqrt(proteins / density)));
+    }
+
+
+    //------------------------------------------------------------------
+    // Generate the network as a SignalingGraph
+    //------------------------------------------------------------------
+
+    public SignalingGraph generate()
+    {
+        Random rand = new Random(seed);
+        int side = getSide();
+        int n = Math.min(proteins, side * side);
+        int center = side / 2;
+
+        // pick n cells in row major order (selection sampling), so node
+        // numbers match SignalingGraph.fromNetwork of the built grid
+        int [] row = new int [n], col = new int [n];
+        long cells = (long) side * side;
+        int chosen = 0;
+        for (long c = 0; c < cells && chosen < n; c++)
+        {
+            if ((cells - c) * rand.nextDouble() < n - chosen)
+            {
+                row[chosen] = (int) (c / side);
+                col[chosen] = (int) (c % side);
+                chosen++;
+            }
+        }
+
+        // sort by ring (outermost first), then by angle: key = ring | angle | node
+        int maxRing = center;
+        long [] key = new long [n];
+        double [] angle = new double [n];        // 0 .. 2 pi around the centre
+        for (int v = 0; v < n; v++)
+        {
+            int ring = Math.max(Math.abs(row[v] - center), Math.abs(col[v] - center));
+            angle[v] = Math.atan2(row[v] - center, col[v] - center) + Math.PI;
+            long a = Math.min((1L << 20) - 1, (long) (angle[v] / (2 * Math.PI) * (1L << 20)));
+            key[v] = ((long) (maxRing - ring) << 52) | (a << 32) | v;
+        }
+        java.util.Arrays.sort(key);
+
+        int [] order  = new int [n];             // nodes by ring and angle
+        int [] ringOf = new int [n];
+        int [] ringStart = new int [maxRing + 1];   // order[ringStart[r] .. ringEnd[r]-1] is ring r
+        int [] ringEnd   = new int [maxRing + 1];   // (both 0 if ring r is empty)
+        for (int i = 0; i < n; i++)
+        {
+            int v = (int) key[i];
+            order[i]  = v;
+            ringOf[v] = maxRing - (int) (key[i] >>> 52);
+
+            if (i == 0 || ringOf[order[i - 1]] != ringOf[v]) ringStart[ringOf[v]] = i;
+            ringEnd[ringOf[v]] = i + 1;
+        }
+
+        // roles: outermost proteins are receptors, innermost are nuclear
+        int receptors = Math.max(1, (int) Math.round(receptorFraction * n));
+        int nuclears  = Math.max(1, (int) Math.round(nuclearFraction * n));
+        boolean [] isReceptor = new boolean [n];
+        boolean [] isNuclear  = new boolean [n];
+        for (int i = 0; i < Math.min(receptors, n); i++)          isReceptor[order[i]] = true;
+        for (int i = Math.max(0, n - nuclears); i < n; i++)      isNuclear[order[i]]  = !isReceptor[order[i]];
+
+        // connections: up to MAX_DEGREE per node
+        int [] targets = new int [n * MAX_DEGREE];
+        boolean [] stim = new boolean [n * MAX_DEGREE];
+        int [] degree = new int [n];
+        int [] inDegree = new int [n];
+
+        for (int v = 0; v < n; v++)
+        {
+            if (isNuclear[v]) continue;
+            int inner = innerRing(ringOf[v], ringStart, ringEnd);
+            int d = Math.max(1, sampleDegree(rand));
+
+            // a few tries per connection: sparse rings often offer the same target again
+            for (int tries = 0; degree[v] < d && tries < 4 * d; tries++)
+            {
+                int r = inner >= 0 && rand.nextDouble() >= lateralFraction ? inner : ringOf[v];
+                int w = near(v, r, angle, ringOf, ringStart, ringEnd, order, rand);
+                if (w >= 0) addEdge(v, w, rand.nextDouble() >= inhibitFraction, targets, stim, degree, inDegree);
+            }
+        }
+
+        // every non-receptor gets an input from the nearest outer ring
+        // that has a protein there with a free connection
+        for (int w = 0; w < n; w++)
+        {
+            if (isReceptor[w] || inDegree[w] > 0) continue;
+            for (int r = ringOf[w] + 1; r <= maxRing && inDegree[w] == 0; r++)
+            {
+                int v = near(w, r, angle, ringOf, ringStart, ringEnd, order, rand);
+                if (v >= 0 && !isNuclear[v])
+                    addEdge(v, w, true, targets, stim, degree, inDegree);
+            }
+        }
+
+        // compress to CSR
+        int [] start = new int [n + 1];
+        for (int v = 0; v < n; v++) start[v + 1] = start[v] + degree[v];
+        int m = start[n];
+        int []     edgeTarget = new int [m];
+        boolean [] edgeStim   = new boolean [m];
+        double []  rate       = new double [m];
+        for (int v = 0; v < n; v++)
+        {
+            System.arraycopy(targets, v * MAX_DEGREE, edgeTarget, start[v], degree[v]);
+            System.arraycopy(stim,    v * MAX_DEGREE, edgeStim,   start[v], degree[v]);
+        }
+        java.util.Arrays.fill(rate, ConnectionElement.DEFAULT_RATE);
+
+        String [] name = new String [n];
+        for (int v = 0; v < n; v++) name[v] = (isReceptor[v] ? "R" : isNuclear[v] ? "N" : "P") + v;
+
+        return new SignalingGraph(side, side, row, col, name, isReceptor, isNuclear,
+                                  start, edgeTarget, edgeStim, rate);
+    }
+
+    // Next occupied ring inside ring r, -1 if none
+    private static int innerRing(int r, int [] ringStart, int [] ringEnd)
+    {
+        for (int i = r - 1; i >= 0; i--)
+            if (ringStart[i] < ringEnd[i]) return i;
+        return -1;
+    }
+
+    //------------------------------------------------------------------
+    // The node of ring r closest in angle to node v, after jittering
+    // v's angle by about a cell and a half of arc. Jittering the angle
+    // (not the position in the ring) keeps connections short however
+    // sparse the ring is
+    //------------------------------------------------------------------
+
+    private static int near(int v, int r, double [] angle, int [] ringOf, int [] ringStart, int [] ringEnd,
+                            int [] order, Random rand)
+    {
+        int size = ringEnd[r] - ringStart[r];
+        if (size == 0) return -1;
+
+        double jitter = rand.nextGaussian() * 1.5 / Math.max(1, Math.min(r, ringOf[v]));
+        double a = angle[v] + jitter;
+        a -= 2 * Math.PI * Math.floor(a / (2 * Math.PI));
+
+        // first node of the ring at angle >= a (the ring is sorted by angle)
+        int lo = ringStart[r], hi = ringEnd[r];
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (angle[order[mid]] < a) lo = mid + 1;
+            else hi = mid;
+        }
+        int after  = lo == ringEnd[r] ? ringStart[r] : lo;
+        int before = lo == ringStart[r] ? ringEnd[r] - 1 : lo - 1;
+        int i = arc(angle[order[after]], a) <= arc(angle[order[before]], a) ? after : before;
+
+        if (order[i] == v)   // same ring: the neighbour on the side of the jitter
+        {
+            if (size == 1) return -1;
+            i = jitter >= 0 ? (i + 1 == ringEnd[r] ? ringStart[r] : i + 1)
+                            : (i == ringStart[r] ? ringEnd[r] - 1 : i - 1);
+        }
+        return order[i];
+    }
+
+    // Angle between a and b, 0 .. pi
+    private static double arc(double a, double b)
+    {
+        double d = Math.abs(a - b);
+        return Math.min(d, 2 * Math.PI - d);
+    }
+
+    private static void addEdge(int v, int w, boolean stimulating, int [] targets, boolean [] stim,
+                                int [] degree, int [] inDegree)
+    {
+        if (degree[v] == MAX_DEGREE) return;
+        for (int j = 0; j < degree[v]; j++)
+            if (targets[v * MAX_DEGREE + j] == w) return;
+
+        targets[v * MAX_DEGREE + degree[v]] = w;
+        stim[v * MAX_DEGREE + degree[v]]    = stimulating;
+        degree[v]++;
+        inDegree[w]++;
+    }
+
+    // Out-degree from the configured distribution, at most MAX_DEGREE
+    private int sampleDegree(Random rand)
+    {
+        if (powerLaw)
+        {
+            // discrete power law on 1..MAX_DEGREE, scaled to the mean
+            double u = rand.nextDouble();
+            double x = Math.pow(1 - u, -1.0 / (exponent - 1));      // Pareto with minimum 1
+            double paretoMean = (exponent - 1) / (exponent - 2);
+            return Math.min(MAX_DEGREE, (int) Math.round(x * meanDegree / paretoMean));
+        }
+
+        // Poisson (Knuth)
+        double limit = Math.exp(-meanDegree), p = 1.0;
+        int k = 0;
+        do { k++; p *= rand.nextDouble(); } while (p > limit);
+        return Math.min(MAX_DEGREE, k - 1);
+    }
+
+
+    //------------------------------------------------------------------
+    // Protein grid of graph g: one protein per node, every node in
+    // pathway 'pathwayId' (made active), connections as in the graph
+    //------------------------------------------------------------------
+
+    public static ProteinElement [][] createNetwork(SignalingGraph g, int pathwayId)
+    {
+        GridState grid = new GridState(g.getRows(), g.getCols());
+        grid.setPathwayActive(pathwayId, true);
+
+        ProteinElement [][] network = new ProteinElement [g.getRows()][g.getCols()];
+        for (int row = 0; row < network.length; row++)
+            for (int col = 0; col < network[row].length; col++)
+                network[row][col] = new ProteinElement(row, col, grid);
+
+        for (int v = 0; v < g.getNodeCount(); v++)
+        {
+            ProteinElement pe = network[g.getRow(v)][g.getCol(v)];
+            pe.setProtein(g.getName(v));
+            pe.setIsReceptor(g.isReceptor(v));
+            pe.setNuclearProtein(g.isNuclear(v));
+            pe.addToPathway(pathwayId);
+
+            for (int e = g.firstEdge(v); e < g.firstEdge(v + 1); e++)
+            {
+                int w = g.getTarget(e);
+                pe.createConnection(g.getRow(w), g.getCol(w), g.isStimulating(e));
+            }
+        }
+        return network;
+    }
+
+
+    //------------------------------------------------------------------
+    // Pathway holding every protein of graph g on 'network' (built by
+    // createNetwork(g, pathwayId))
+    //------------------------------------------------------------------
+
+    public static Pathway createPathway(SignalingGraph g, ProteinElement [][] network, int pathwayId,
+                                        ScoreKeeper score)
+    {
+        ProteinElement [] members = new ProteinElement [g.getNodeCount()];
+        for (int v = 0; v < members.length; v++) members[v] = network[g.getRow(v)][g.getCol(v)];
+        return new Pathway(pathwayId, "Generated", network, members, score);
+    }
+
+
+    //------------------------------------------------------------------
+    // Scaling benchmark: generate networks of 10 .. max proteins and time
+    // the graph analyses on each; while the protein grid fits, also the
+    // signal steps (Pathway.stepAll) and drawing a frame of the whole
+    // grid as density tiles (far) and of 30x30 cells with proteins and
+    // connections (near), as the game panel does
+    //
+    //   java NetworkGenerator [-max 1000000] [-degree 1.5] [-powerlaw 2.5]
+    //                         [-inhibit 0.2] [-density 0.1] [-seed 1]
+    //------------------------------------------------------------------
+
+    public static void main(String [] args)
+    {
+        int max = 1000000;
+        long seed = 1;
+        double degree = 1.5, inhibit = 0.2, density = 0.1, exponent = 0;
+
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+                 if (args[i].equals("-max"))      max      = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("-degree"))   degree   = Double.parseDouble(args[i + 1]);
+            else if (args[i].equals("-powerlaw")) exponent = Double.parseDouble(args[i + 1]);
+            else if (args[i].equals("-inhibit"))  inhibit  = Double.parseDouble(args[i + 1]);
+            else if (args[i].equals("-density"))  density  = Double.parseDouble(args[i + 1]);
+            else if (args[i].equals("-seed"))     seed     = Long.parseLong(args[i + 1]);
+        }
+
+        System.out.println("  proteins  connections  generate ms      scc ms  min cut ms  grid ms  step us" +
+                           "  far ms  near ms  events/s");
+        for (int n = 10; n <= max; n *= 10)
+        {
+            NetworkGenerator gen = new NetworkGenerator(n, seed);
+            gen.setMeanDegree(degree);
+            gen.setInhibitFraction(inhibit);
+            gen.setDensity(density);
+            if (exponent > 0) gen.setPowerLaw(exponent);
+
+            long t0 = System.nanoTime();
+            SignalingGraph g = gen.generate();
+            long t1 = System.nanoTime();
+            g.stronglyConnectedComponents(new int [g.getNodeCount()]);
+            long t2 = System.nanoTime();
+            ChokePoints.minimumCut(g);
+            long t3 = System.nanoTime();
+
+            // ProteinElement grid round trip, signal steps and drawing
+            // only while the grid fits comfortably
+            String gridTime = "-", stepTime = "-", farTime = "-", nearTime = "-";
+            if ((long) g.getRows() * g.getCols() <= 1000000)
+            {
+                ProteinElement [][] network = createNetwork(g, 0);
+                SignalingGraph back = SignalingGraph.fromNetwork(network, true);
+                if (back.getNodeCount() != g.getNodeCount() || back.getEdgeCount() != g.getEdgeCount())
+                    System.out.println("Error: grid round trip changed the network");
+                gridTime = String.format("%.1f", (System.nanoTime() - t3) / 1e6);
+
+                stepTime = String.format("%.1f", timeSteps(g, network, 200) / 1e3);
+                double [] frame = timeFrames(g, network, 20);
+                farTime  = String.format("%.2f", frame[0] / 1e6);
+                nearTime = String.format("%.2f", frame[1] / 1e6);
+            }
+
+            StochasticKinetics sim = new StochasticKinetics(g, seed);
+            long t4 = System.nanoTime();
+            sim.runEvents(200000);
+            double rate = sim.getEventCount() / ((System.nanoTime() - t4) / 1e9);
+
+            System.out.println(String.format("%10d %12d %12.1f %11.1f %11.1f %8s %8s %7s %8s %9.0f",
+                                             g.getNodeCount(), g.getEdgeCount(), (t1 - t0) / 1e6,
+                                             (t2 - t1) / 1e6, (t3 - t2) / 1e6, gridTime, stepTime,
+                                             farTime, nearTime, rate));
+        }
+    }
+
+    // Mean nanoseconds per signal step of the whole network, signals
+    // flowing from every receptor
+    private static double timeSteps(SignalingGraph g, ProteinElement [][] network, int steps)
+    {
+        ScoreKeeper none = new ScoreKeeper() {
+            public void recordWin(int origin)  { }
+            public void recordLoss(int origin) { }
+        };
+        Pathway [] pathways = { createPathway(g, network, 0, none) };
+        pathways[0].activate();
+        for (int s = 0; s < steps / 4; s++) Pathway.stepAll(pathways, false);   // warm up, fill the network
+
+        long begin = System.nanoTime();
+        for (int s = 0; s < steps; s++) Pathway.stepAll(pathways, false);
+        return (System.nanoTime() - begin) / (double) steps;
+    }
+
+    // Mean nanoseconds per frame drawn far (whole grid, density tiles)
+    // and near (30x30 cells around the centre), into a 1000x1000 image
+    private static double [] timeFrames(SignalingGraph g, ProteinElement [][] network, int frames)
+    {
+        final int pixels = 1000, near = 30;
+        BufferedImage image = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_RGB);
+        Graphics gr = image.getGraphics();
+        int rows = g.getRows(), cols = g.getCols();
+        TilePyramid tiles = network[0][0].getGrid().getTiles();
+        ConnectionIndex connections = new ConnectionIndex(network);
+
+        int xStep = Math.max(1, pixels / cols), yStep = Math.max(1, pixels / rows);
+        int level = tiles.levelFor(xStep, yStep);
+        long begin = System.nanoTime();
+        for (int f = 0; f < frames; f++)
+        {
+            gr.setColor(Color.BLACK);
+            gr.fillRect(0, 0, pixels, pixels);
+            tiles.draw(gr, level, xStep, yStep, 0, 0, rows - 1, cols - 1);
+        }
+        long far = System.nanoTime() - begin;
+
+        int step = pixels / near;
+        int row0 = Math.max(0, rows / 2 - near / 2), row1 = Math.min(rows - 1, row0 + near - 1);
+        int col0 = Math.max(0, cols / 2 - near / 2), col1 = Math.min(cols - 1, col0 + near - 1);
+        gr.translate(-col0 * step, -row0 * step);
+        begin = System.nanoTime();
+        for (int f = 0; f < frames; f++)
+        {
+            gr.setColor(Color.BLACK);
+            gr.fillRect(col0 * step, row0 * step, pixels, pixels);
+            for (int row = row0; row <= row1; row++)
+                for (int col = col0; col <= col1; col++)
+                    network[row][col].DrawCell(step * col, step * row, gr, step, step, true, true, true);
+            int n = connections.query(row0, col0, row1, col1);
+            for (int i = 0; i < n; i++) connections.getResult(i).Draw(gr, step, step);
+        }
+        long nearTime = System.nanoTime() - begin;
+        gr.dispose();
+
+        return new double [] { far / (double) frames, nearTime / (double) frames };
+    }
+}
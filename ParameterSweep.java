@@ -0,0 +1,332 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/26/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+
+//--------------------------------------------------------------------
+// Game balance sweep over a grid of GameParameters.
+//
+// The result is a ResultCube with the dimensions
+//   period, win, loss, pathways, start, level, metric (kills, damages, score)
+// holding the average over 'seeds' headless games of one strategy.
+//
+// Points do not change how a game is played, and a level only depends
+// on the number of pathways it simulates. So the games actually played
+// are keyed by (period, pathway count, start cells); each such run is
+// played once, and win/loss points and pathway schedules are applied
+// to its kill and damage averages. Runs are cached by their parameter
+// hash in memory and, if a cache file is given, on disk, so a later
+// sweep only plays the runs it has not seen.
+//
+//   java -Djava.awt.headless=true ParameterSweep [options]
+//     -periods  3000,4000,5000         oncoMoveTimer values (ms)
+//     -wins     1,2,3                  WIN_POINT values
+//     -losses   1,2                    LOSS_POINT values
+//     -pathways 1/2/3/4/5/6;2/3/4/5/6/7   pathways at levels 1..6
+//     -starts   12:6/12:23/18:6/18:23  suppressor start cells (';' between sets)
+//     -strategy autopilot  -seeds 200  -steps 30
+//     -cache sweep.cache   -out sweep.csv
+//--------------------------------------------------------------------
+
+class ParameterSweep
+{
+    private int []      periods;
+    private int []      wins;
+    private int []      losses;
+    private int [][]    schedules;     // [schedule][level], level 1..MAX_LEVEL
+    private int [][][]  starts;        // [layout][row/col][suppressor]
+    private String      strategy;
+    private int         seeds;
+    private int         steps;
+
+    private HashMap<Long, double[]> cache = new HashMap<Long, double[]>();  // run hash -> kills, damages
+    private PrintWriter cacheOut;      // new cache entries, null if no cache file
+
+    // Runs to be played in this sweep
+    private ArrayList<GameParameters> runParams = new ArrayList<GameParameters>();
+    private ArrayList<Long>           runKeys   = new ArrayList<Long>();
+    private long [][]                 runSums;          // [run][kills, damages]
+
+    // One worker thread's game and strategy
+    private final ThreadLocal<Player> players = ThreadLocal.withInitial(() -> new Player());
+
+    class Player
+    {
+        HeadlessGame        game     = new HeadlessGame();
+        Tournament.Strategy strategy = Tournament.createStrategy(ParameterSweep.this.strategy);
+        int []              moves    = new int [HeadlessGame.NUM_SUPPRESSORS];
+    }
+
+    public ParameterSweep(int [] periodValues, int [] winValues, int [] lossValues,
+                          int [][] pathwaySchedules, int [][][] startLayouts,
+                          String strategyName, int numSeeds, int numSteps)
+    {
+        periods   = periodValues;
+        wins      = winValues;
+        losses    = lossValues;
+        schedules = pathwaySchedules;
+        starts    = startLayouts;
+        strategy  = strategyName;
+        seeds     = numSeeds;
+        steps     = numSteps;
+    }
+
+
+    //------------------------------------------------------------------
+    // Load cached runs from 'file' and append new runs to it
+    //------------------------------------------------------------------
+
+    public void useCache(File file) throws IOException
+    {
+        if (file.exists())
+        {
+            BufferedReader in = new BufferedReader(new FileReader(file));
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                String [] f = line.trim().split(" ");
+                if (f.length != 3) continue;
+                cache.put(Long.parseUnsignedLong(f[0], 16),
+                          new double [] { Double.parseDouble(f[1]), Double.parseDouble(f[2]) });
+            }
+            in.close();
+        }
+        cacheOut = new PrintWriter(new BufferedWriter(new FileWriter(file, true)));
+    }
+
+    // Parameters of one run: all levels of the schedule map to 'pathways'
+    private GameParameters runParameters(int period, int pathways, int [][] start)
+    {
+        int [] levels = new int [ScorePanel.MAX_LEVEL + 1];
+        java.util.Arrays.fill(levels, pathways);
+        return new GameParameters(period, 1, 0, levels, start[0], start[1]);
+    }
+
+    // Cache key of a run: its parameters plus everything else that changes the games
+    private long runKey(GameParameters p)
+    {
+        long h = p.hash();
+        h = GameParameters.mix(h, strategy.hashCode());
+        h = GameParameters.mix(h, seeds);
+        h = GameParameters.mix(h, steps);
+        return h;
+    }
+
+
+    //------------------------------------------------------------------
+    // Play all runs that are not cached (in parallel) and build the cube
+    //------------------------------------------------------------------
+
+    public ResultCube run(ForkJoinPool pool)
+    {
+        runParams.clear();
+        runKeys.clear();
+
+        // collect the distinct uncached runs
+        HashMap<Long, Integer> queued = new HashMap<Long, Integer>();
+        int cached = 0;
+        for (int period : periods)
+        {
+            for (int [] schedule : schedules)
+            {
+                for (int level = 1; level <= ScorePanel.MAX_LEVEL; level++)
+                {
+                    for (int [][] start : starts)
+                    {
+                        GameParameters p = runParameters(period, schedule[level], start);
+                        long key = runKey(p);
+                        if (queued.containsKey(key)) continue;
+                        if (cache.containsKey(key))
+                        {
+                            queued.put(key, -1);
+                            cached++;
+                            continue;
+                        }
+
+                        queued.put(key, runParams.size());
+                        runParams.add(p);
+                        runKeys.add(key);
+                    }
+                }
+            }
+        }
+
+        runSums = new long [runParams.size()][2];
+        BatchRunner.run(pool, 0, (long) runParams.size() * seeds, 16,
+                        g -> play((int) (g / seeds), (int) (g % seeds)));
+
+        for (int r = 0; r < runParams.size(); r++)
+        {
+            double [] avg = { runSums[r][0] / (double) seeds, runSums[r][1] / (double) seeds };
+            cache.put(runKeys.get(r), avg);
+            if (cacheOut != null)
+                cacheOut.println(Long.toHexString(runKeys.get(r)) + " " + avg[0] + " " + avg[1]);
+        }
+        if (cacheOut != null) cacheOut.flush();
+
+        System.out.println(runParams.size() + " runs played, " + cached + " from cache");
+        return buildCube();
+    }
+
+    private void play(int run, int seed)
+    {
+        Player player = players.get();
+        HeadlessGame game = player.game;
+        Tournament.Strategy s = player.strategy;
+        int [] moves = player.moves;
+
+        game.setParameters(runParams.get(run));
+        game.reset(1, seed);
+        s.reset(game, seed);
+
+        for (int k = 0; k < steps * game.getMovesPerStep(); k++)
+        {
+            s.plan(game, moves);
+            game.tick(moves);
+        }
+
+        synchronized (runSums[run])
+        {
+            runSums[run][0] += game.getKills();
+            runSums[run][1] += game.getDamages();
+        }
+    }
+
+    private ResultCube buildCube()
+    {
+        String [][] labels = new String [7][];
+        labels[0] = labels(periods);
+        labels[1] = labels(wins);
+        labels[2] = labels(losses);
+        labels[3] = new String [schedules.length];
+        labels[4] = new String [starts.length];
+        labels[5] = new String [ScorePanel.MAX_LEVEL];
+        labels[6] = new String [] { "kills", "damages", "score" };
+
+        for (int i = 0; i < schedules.length; i++)
+        {
+            StringBuilder sb = new StringBuilder();
+            for (int l = 1; l <= ScorePanel.MAX_LEVEL; l++) sb.append(l > 1 ? "/" : "").append(schedules[i][l]);
+            labels[3][i] = sb.toString();
+        }
+        for (int i = 0; i < starts.length; i++)
+        {
+            StringBuilder sb = new StringBuilder();
+            for (int k = 0; k < starts[i][0].length; k++)
+                sb.append(k > 0 ? "/" : "").append(starts[i][0][k]).append(':').append(starts[i][1][k]);
+            labels[4][i] = sb.toString();
+        }
+        for (int l = 0; l < ScorePanel.MAX_LEVEL; l++) labels[5][l] = String.valueOf(l + 1);
+
+        ResultCube cube = new ResultCube(
+            new String [] { "period", "win", "loss", "pathways", "start", "level", "metric" }, labels);
+
+        for (int a = 0; a < periods.length; a++)
+        for (int w = 0; w < wins.length; w++)
+        for (int b = 0; b < losses.length; b++)
+        for (int s = 0; s < schedules.length; s++)
+        for (int t = 0; t < starts.length; t++)
+        for (int l = 1; l <= ScorePanel.MAX_LEVEL; l++)
+        {
+            double [] avg = cache.get(runKey(runParameters(periods[a], schedules[s][l], starts[t])));
+            cube.set(avg[0], a, w, b, s, t, l - 1, 0);
+            cube.set(avg[1], a, w, b, s, t, l - 1, 1);
+            cube.set(avg[0] * wins[w] - avg[1] * losses[b], a, w, b, s, t, l - 1, 2);
+        }
+        return cube;
+    }
+
+    private static String [] labels(int [] values)
+    {
+        String [] l = new String [values.length];
+        for (int i = 0; i < values.length; i++) l[i] = String.valueOf(values[i]);
+        return l;
+    }
+
+    private static int [] parseInts(String list, String separator)
+    {
+        String [] f = list.split(separator);
+        int [] v = new int [f.length];
+        for (int i = 0; i < f.length; i++) v[i] = Integer.parseInt(f[i].trim());
+        return v;
+    }
+
+
+    public static void main(String [] args) throws IOException
+    {
+        String periodList = "4000", winList = "2", lossList = "1";
+        String pathwayList = "1/2/3/4/5/6", startList = "12:6/12:23/18:6/18:23";
+        String strategy = "autopilot", cacheName = null, outName = "sweep.csv";
+        int seeds = 200, steps = 30;
+
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+                 if (args[i].equals("-periods"))  periodList  = args[i + 1];
+            else if (args[i].equals("-wins"))     winList     = args[i + 1];
+            else if (args[i].equals("-losses"))   lossList    = args[i + 1];
+            else if (args[i].equals("-pathways")) pathwayList = args[i + 1];
+            else if (args[i].equals("-starts"))   startList   = args[i + 1];
+            else if (args[i].equals("-strategy")) strategy    = args[i + 1];
+            else if (args[i].equals("-seeds"))    seeds       = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("-steps"))    steps       = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("-cache"))    cacheName   = args[i + 1];
+            else if (args[i].equals("-out"))      outName     = args[i + 1];
+        }
+
+        if (Tournament.createStrategy(strategy) == null)
+        {
+            System.out.println("Unknown strategy: " + strategy);
+            return;
+        }
+
+        String [] sets = pathwayList.split(";");
+        int [][] schedules = new int [sets.length][];
+        for (int i = 0; i < sets.length; i++)
+        {
+            int [] p = parseInts(sets[i], "/");
+            schedules[i] = new int [ScorePanel.MAX_LEVEL + 1];
+            for (int l = 1; l <= ScorePanel.MAX_LEVEL; l++)
+                schedules[i][l] = p[Math.min(l, p.length) - 1];
+        }
+
+        String [] layouts = startList.split(";");
+        int [][][] starts = new int [layouts.length][2][];
+        for (int i = 0; i < layouts.length; i++)
+        {
+            String [] cells = layouts[i].split("/");
+            if (cells.length != HeadlessGame.NUM_SUPPRESSORS)
+            {
+                System.out.println("Need " + HeadlessGame.NUM_SUPPRESSORS + " start cells: " + layouts[i]);
+                return;
+            }
+            starts[i][0] = new int [cells.length];
+            starts[i][1] = new int [cells.length];
+            for (int k = 0; k < cells.length; k++)
+            {
+                int [] rc = parseInts(cells[k], ":");
+                starts[i][0][k] = rc[0];
+                starts[i][1][k] = rc[1];
+            }
+        }
+
+        ParameterSweep sweep = new ParameterSweep(parseInts(periodList, ","), parseInts(winList, ","),
+                                                  parseInts(lossList, ","), schedules, starts,
+                                                  strategy, seeds, steps);
+        if (cacheName != null) sweep.useCache(new File(cacheName));
+
+        long begin = System.nanoTime();
+        ResultCube cube = sweep.run(ForkJoinPool.commonPool());
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(outName)));
+        cube.write(out);
+        out.close();
+
+        System.out.println(String.format("Done in %.1f s, cube written to %s", (System.nanoTime() - begin) / 1e9, outName));
+    }
+}
@@ -4,6 +4,10 @@
 
 // package signalstorm;
 
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 //--------------------------------------------------------------------
 // The Pathway class is used to initialize game with specific 
 // cancer signaling pathways
@@ -22,7 +26,8 @@ class Pathway
     private int       relatedCancerCount;  // related cancer count
     
     ProteinElement [][] network;   // reference to Signaling network in CellPanel
-    ScorePanel          score;     // reference to Score panel for easy score manipulation
+    GridState           grid;      // active pathway mask of the network
+    ScoreKeeper         score;     // reference to Score panel for easy score manipulation
     
     private ProteinElement [] proteins;  // Array of Protein Element references in this pathway
     private int proteinCount;            // Protein Count in this pathway
@@ -30,11 +35,37 @@ class Pathway
     ProteinElement []  receptor;         // Cell surface receptors for this pathway
     
     private boolean    active;           // is it a currently simulated pathway
+    
+    private ProteinElement [] oncoSources;  // proteins whose signal moves in the current step
+    private int               sourceCount;
+    private ProteinElement [] oncoTargets;  // proteins the signals move to in the current step
+    private int []            targetOrigins; // origin of the signal moving to each target
+    private int               targetCount;
+    private int               signalBudget;  // max signal deliveries per step
+    private int               scanStart;     // protein the source scan starts at
+    
+    private int []     component;        // strongly connected component of each protein
+    private int        componentCount;   // number of strongly connected components
+    private boolean    cyclic;           // does the pathway have feedback loops
      
     public static final int MAX_POSSIBLE_CANCERS = 25;
     public static final int MAX_PATHWAY_PROTEINS = 20;
+    public static final int DEFAULT_BUDGET       = 2 * ProteinElement.MAXCONNECTIONS;  // min default budget
+    
+    // Connection delays (ms) used in timed mode
+    public static final int KINASE_DELAY  = 2000;  // fast phosphorylation cascades
+    public static final int NUCLEAR_DELAY = 6000;  // slow nuclear translocation
     
-    public Pathway(int Id, String Name, String Family, ProteinElement [][] ntk, ScorePanel theScore)
+    // Kinases in the game networks, their outgoing signals travel fast
+    private static final String [] KINASES = { "JAK", "PKC", "CAMKII", "Raf", "MEK1", "ERK1", "ERK",
+                                               "Akt", "PI3K", "GSK3B", "IKKA", "NIK", "TAK",
+                                               "P38", "JNK", "mTOR" };
+    
+    // Names of the 9 signaling pathways, indexed by pathway id
+    public static final String [] NAMES = { "HedgeHog", "Notch", "Wnt", "Jak/STAT", "GPCR",
+                                            "Ras", "PI3K/Akt", "NF-kB", "TGF-B" };
+    
+    public Pathway(int Id, String Name, String Family, ProteinElement [][] ntk, ScoreKeeper theScore)
     {
         id     = Id;
         name   = new String(Name);
@@ -42,6 +73,7 @@ class Pathway
         relatedCancers = new String [MAX_POSSIBLE_CANCERS];
         relatedCancerCount = 0;
         network = ntk;
+        grid    = ntk[0][0].getGrid();
         score   = theScore;
         proteins = new ProteinElement [MAX_PATHWAY_PROTEINS];
         proteinCount = 0;
@@ -49,25 +81,87 @@ class Pathway
         receptor = new ProteinElement[2]; // 2 cell surface receptor
         active = false;
         
+        oncoSources = new ProteinElement [MAX_PATHWAY_PROTEINS];
+        oncoTargets = new ProteinElement [MAX_PATHWAY_PROTEINS * ProteinElement.MAXCONNECTIONS];
+        targetOrigins = new int [oncoTargets.length];
+        
         // ccreate simplistic signaling network for the game
         createSignalingNetwork();
+        setSignalBudget(Math.max(DEFAULT_BUDGET, proteinCount));
+        assignDelays();
+        findCycles();
+    }
+    
+    //------------------------------------------------------------------
+    // A pathway of proteins already placed and connected on the grid
+    // (a generated network) instead of one of the game's pathways.
+    // Every receptor among them gets a signal when it is activated
+    //------------------------------------------------------------------
+    
+    public Pathway(int Id, String Name, ProteinElement [][] ntk, ProteinElement [] members, ScoreKeeper theScore)
+    {
+        id     = Id;
+        name   = new String(Name);
+        family = new String(Name);
+        relatedCancers = new String [MAX_POSSIBLE_CANCERS];
+        relatedCancerCount = 0;
+        network = ntk;
+        grid    = ntk[0][0].getGrid();
+        score   = theScore;
+        proteins = members.clone();
+        proteinCount = members.length;
+        
+        int receptors = 0;
+        for (ProteinElement pe : members)
+            if (pe.getIsReceptor()) receptors++;
+        receptor = new ProteinElement [receptors];
+        receptors = 0;
+        for (ProteinElement pe : members)
+            if (pe.getIsReceptor()) receptor[receptors++] = pe;
+        active = false;
+        
+        oncoSources = new ProteinElement [proteinCount];
+        oncoTargets = new ProteinElement [proteinCount * ProteinElement.MAXCONNECTIONS];
+        targetOrigins = new int [oncoTargets.length];
+        
+        setSignalBudget(Math.max(DEFAULT_BUDGET, proteinCount));
+        findCycles();
     }
     
     // Get protein count and protein names
     public int    getProteinCount()     { return proteinCount;          }
     public String getProteinName(int i) { return proteins[i].getName(); }
+    public ProteinElement getProtein(int i) { return proteins[i];       }
     
     // Get cancer count and cancer names
     public int    getCancerCount()     { return relatedCancerCount; }
     public String getCancerName(int i) { return relatedCancers[i];  }
     
-    // Get pathway name
+    // Feedback loops found when the pathway was loaded
+    public boolean isCyclic()              { return cyclic;         }
+    public int     getComponentCount()     { return componentCount; }
+    public int     getComponent(int i)     { return component[i];   }
+    
+    // Limit the signal deliveries per step: at least one source's worth
+    // (so every source can move), at most the buffer capacity
+    public void setSignalBudget(int budget) 
+    { 
+        signalBudget = Math.max(ProteinElement.MAXCONNECTIONS, Math.min(budget, oncoTargets.length)); 
+    }
+    public int  getSignalBudget()           { return signalBudget; }
+    
+    // Get cell surface receptor i (0 or 1 in the game), null if none
+    public ProteinElement getReceptor(int i) { return receptor[i]; }
+    public int getReceptorCount()            { return receptor.length; }
+    
+    // Get pathway name and index
     public String getName()            { return name; }
+    public int    getId()              { return id;   }
     
-    // Activate ProteinElement pe and add its reference to proteins array
+    // Make ProteinElement pe a member and add its reference to proteins array
     public void addProtein(ProteinElement pe)
     {
-        pe.setActive(true);
+        pe.addToPathway(id);
         proteins[proteinCount] = pe;
         proteinCount++;
     }
@@ -82,17 +176,120 @@ class Pathway
         pe1.createConnection(row_2, col_2, activating);  
     }
     
+    
+    //-------------------------------------------------------------
+    // Decide which pathways to simulate for the game based on 
+    // current game level and user indicated preferences
+    // 
+    // The decision is communicated through passed array of ints
+    //-------------------------------------------------------------
+    
+    public static void decideSimulatedPathways(int [] simulatedPathways, boolean [] pathwaysPreference, Random rand)
+    {
+        int level = simulatedPathways.length;
+        int levelIndex = 0;      
+
+        // Select 'level' number of pathways based on user indicated pathways preference
+        for (int pathwayIndex = 0; pathwayIndex < pathwaysPreference.length; pathwayIndex++) 
+        {
+            // only look at user preference first
+            if (pathwaysPreference[pathwayIndex] == true)
+            {   
+                simulatedPathways[levelIndex] = pathwayIndex;  // record pathway index
+                levelIndex++;
+                if (levelIndex == level) break;
+            }    
+        }
+        
+        // User pathways preference is less than current game level
+        // Randomly fill remaining pathways
+        while (levelIndex < level)
+        {
+            int i = rand.nextInt(pathwaysPreference.length);
+            
+            // Check if pathway index i is already selected
+            boolean alreadySelected = false;
+            for (int k = 0; k < levelIndex; k++)
+            {
+                if (i == simulatedPathways[k]) 
+                {
+                    alreadySelected = true;
+                    break;
+                }
+            }
+ 
+            if (alreadySelected == false)
+            {
+                simulatedPathways[levelIndex] = i;
+                levelIndex++;
+            }   
+        }
+    }
+    
+    
+    //------------------------------------------------------------------
+    // Find the strongly connected components of the pathway (Tarjan).
+    // A component with more than one protein is a feedback loop in
+    // which a signal could circulate forever.
+    //------------------------------------------------------------------
+    public void findCycles()
+    {
+        SignalingGraph g = SignalingGraph.fromProteins(network, proteins, proteinCount);
+        component = new int [proteinCount];
+        componentCount = g.stronglyConnectedComponents(component);
+        
+        cyclic = componentCount < proteinCount;
+        for (int v = 0; v < proteinCount && !cyclic; v++)
+        {
+            for (int e = g.firstEdge(v); e < g.firstEdge(v + 1); e++)
+                if (g.getTarget(e) == v) cyclic = true;   // self loop
+        }
+        
+        if (cyclic)
+            System.out.println("  " + name + " has feedback loops: signals are limited to " +
+                               signalBudget + " deliveries per step");
+    }
+    
+    
+    //------------------------------------------------------------------
+    // Set timed mode delays of all connections in this pathway. Signals
+    // into the nucleus travel slowly, signals out of kinases quickly
+    //------------------------------------------------------------------
+    public void assignDelays()
+    {
+        for (int i = 0; i < proteinCount; i++)
+        {
+            ProteinElement pe = proteins[i];
+            
+            boolean kinase = false;
+            for (int k = 0; k < KINASES.length; k++)
+                if (KINASES[k].equals(pe.getName())) kinase = true;
+            
+            for (int c = 0; c < pe.getConnectionCount(); c++)
+            {
+                ConnectionElement ce = pe.getConnection(c);
+                ProteinElement to = network[ce.getToRow()][ce.getToCol()];
+                
+                if (to.isNuclearProtein())
+                    ce.setDelay(NUCLEAR_DELAY);
+                else if (kinase)
+                    ce.setDelay(KINASE_DELAY);
+                else
+                    ce.setDelay(ConnectionElement.DEFAULT_DELAY);
+            }
+        }
+    }
+    
     public boolean isActive() { return active; }
     
     //------------------------------------------------------------------------
-    // Deactivate this pathway by setting all proteins active status to false
+    // Deactivate this pathway. Its proteins stay active if they are shared
+    // with another active pathway
     //------------------------------------------------------------------------
     public void  deactivate() 
     { 
         active = false; 
-        
-        for (int i = 0; i < proteinCount; i++)
-            proteins[i].setActive(false);
+        grid.setPathwayActive(id, false);
     }
     
     
@@ -102,49 +299,163 @@ class Pathway
     public void activate()
     {
         active = true;  // activate me!
+        scanStart = 0;
         
         // activate individual proteins in this pathway
-        for (int i = 0; i < proteinCount; i++)
-            proteins[i].setActive(true);
+        grid.setPathwayActive(id, true);
         
-        // Inject oncogenic signals at the receptors (mostly 1 recepor)
-        for (int i = 0; i < 2; i++)
+        // Inject oncogenic signals at the receptors (mostly 1 recepor;
+        // statistics count the receptors of a generated network as two)
+        for (int i = 0; i < receptor.length; i++)
         {
             if (receptor[i] != null)
+            {
                 receptor[i].setOncogenicSignal(true);
+                receptor[i].setSignalOrigin(SignalStatistics.origin(id, Math.min(i, SignalStatistics.MAX_RECEPTORS - 1)));
+            }
         }
     }
     
     
-    //----------------------------------------------------------
-    // Move Oncogenic signal one step forward along the pathway
-    //----------------------------------------------------------
+    //------------------------------------------------------------------
+    // One signal step of all pathways, the same for the interactive
+    // and the headless game. The compute phase only reads the grid, so
+    // it may run in parallel; the commit phase applies all writes in
+    // pathway order, so both modes give identical results.
+    //------------------------------------------------------------------
+    
+    public static void stepAll(Pathway [] pathways, boolean parallel)
+    {
+        pathways[0].grid.nextStep();
+        
+        if (parallel)
+        {
+            ForkJoinPool.commonPool().invoke(new ComputeStepTask(pathways, 0, pathways.length));
+        }
+        else
+        {
+            for (int i = 0; i < pathways.length; i++) 
+                pathways[i].computeOncoStep();
+        }
+        
+        for (int i = 0; i < pathways.length; i++) 
+            pathways[i].clearOncoSources();
+        
+        for (int i = 0; i < pathways.length; i++) 
+            pathways[i].commitOncoStep();
+    }
+    
+    //-----------------------------------------------------------
+    // Fork/join task computing the signal step of pathways
+    // [begin, end) by splitting the range in halves
+    //-----------------------------------------------------------
     
-    public void moveOncoOneStep()
+    static class ComputeStepTask extends RecursiveAction
     {
-        if (!active) return;  // if pathway is not active, return
+        private static final long serialVersionUID = 1L;
         
-        ProteinElement [] oncoProteins = new ProteinElement[MAX_PATHWAY_PROTEINS];
-        int oncoCount = 0;
+        private Pathway [] pathways;
+        private int begin, end;
         
-        //-----------------------------------------------------------
-        // Collect all proteins of this pathway that have oncogenic 
-        // signals and move them one step forward outside the loop. 
-        // This is done to prevent double moving one signal!
-        //-----------------------------------------------------------
-        for (int i = 0; i < proteinCount; i++)
+        ComputeStepTask(Pathway [] p, int b, int e)
         {
-            if (proteins[i].hasOncogenicSignal())
+            pathways = p;
+            begin = b;
+            end   = e;
+        }
+        
+        protected void compute()
+        {
+            if (end - begin == 1)
             {
-                oncoProteins[oncoCount] = proteins[i];
-                oncoCount++;
+                pathways[begin].computeOncoStep();
+                return;
             }
+            
+            int mid = (begin + end) / 2;
+            invokeAll(new ComputeStepTask(pathways, begin, mid),
+                      new ComputeStepTask(pathways, mid, end));
         }
+    }
+    
+    
+    //------------------------------------------------------------------
+    // A signal step runs in two phases so that pathways sharing proteins
+    // can be stepped in parallel and still give the same result:
+    //
+    //   compute - (any order, read only) collect the proteins with signals
+    //             that this pathway owns and the proteins their signals
+    //             move to. A shared protein is owned by the lowest numbered
+    //             active pathway, so its signal is moved only once
+    //   commit  - (sequential, pathway order) clear all sources of all
+    //             pathways first, then deliver all signals
+    //
+    // The work of one step is bounded by the size of the network, not by
+    // how long the game runs: every protein holds at most one signal,
+    // signals converging on a protein in the same step merge into one,
+    // and each pathway delivers at most signalBudget signals per step.
+    // Sources over budget keep their signal and move in a later step:
+    // the next scan starts at the first skipped source, so no source
+    // waits more than proteinCount steps.
+    //------------------------------------------------------------------
+    
+    public void computeOncoStep()
+    {
+        sourceCount = 0;
+        targetCount = 0;
+        
+        if (!active) return;  // if pathway is not active, return
         
-        for (int i = 0; i < oncoCount; i++)
+        int skipped = -1;     // first source over budget
+        for (int k = 0; k < proteinCount; k++)
         {
-            oncoProteins[i].moveOnco(network, score);
-        }      
+            int i = (scanStart + k) % proteinCount;
+            ProteinElement pe = proteins[i];
+            if (pe.hasOncogenicSignal() && pe.getOwner() == id)
+            {
+                if (targetCount + pe.getConnectionCount() > signalBudget)
+                {
+                    if (skipped < 0) skipped = i;
+                    continue;   // over budget, moves in a later step
+                }
+                
+                oncoSources[sourceCount] = pe;
+                sourceCount++;
+                
+                int first = targetCount;
+                targetCount = pe.collectOncoTargets(network, oncoTargets, targetCount);
+                for (int t = first; t < targetCount; t++)
+                    targetOrigins[t] = pe.getSignalOrigin();
+            }
+        }
+        
+        if (skipped >= 0) scanStart = skipped;
+    }
+    
+    // After moving the oncogenic signal, clear it at non-receptor sources
+    public void clearOncoSources()
+    {
+        for (int i = 0; i < sourceCount; i++)
+        {
+            if (!oncoSources[i].getIsReceptor())
+                oncoSources[i].setOncogenicSignal(false);
+        }
+    }
+    
+    // Deliver the signals collected in the compute phase
+    public void commitOncoStep()
+    {
+        int step = grid.getStep();
+        
+        for (int i = 0; i < targetCount; i++)
+        {
+            // merge with a signal already delivered in this step
+            if (oncoTargets[i].markDelivered(step))
+                oncoTargets[i].receiveOnco(score, targetOrigins[i]);
+        }
+        
+        sourceCount = 0;
+        targetCount = 0;
     }
     
     
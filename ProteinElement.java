@@ -18,24 +18,42 @@ public class ProteinElement
     private boolean hasProtein;           // does it have a real protein    ?
     private boolean hasOncogenicSignal;   // does it have a cancer signal   ?
     private boolean hasSuppressorSignal;  // is suppressor on this location ?
+    private int     signalOrigin;         // packed pathway/receptor origin of the signal
+    private int     deliveredStep;        // last signal step a signal was delivered here
+    private int     epoch;                // grid epoch (game) the signal state belongs to
     
     private boolean isReceptor;           // is it a cell surface receptor protein ?
     private boolean nuclearProtein;       // is it a nucleus protein ?
     
     private String  proteinName;          // name of protein if it has one
-    private boolean active;               // is it active or inactive
+    private long    membership;           // bit i set if protein belongs to pathway i
+    private GridState grid;               // state shared by the whole protein grid
     
     private ConnectionElement [] connections; // array of connections to other protein elements
     private int connectionCount;              // protein connection count
     
+    private double  concentration;        // activated fraction in concentration mode
+    private boolean showConcentration;    // draw concentration instead of active status
+    
     private Font font;
     
-    private final int MAXCONNECTIONS = 10;    // number of max protein connections allowed 
+    public static final int MAXCONNECTIONS = 10;    // number of max protein connections allowed 
+    
+    // Shades of green used to show concentration (dark = 0, bright = 1)
+    private static final Color [] SHADES = new Color [16];
+    static
+    {
+        for (int i = 0; i < SHADES.length; i++)
+            SHADES[i] = new Color(0, 90 + i * 11, 0);
+    }
             
-    public ProteinElement(int Row, int Col)
+    public ProteinElement(int Row, int Col, GridState gridState)
     {   
         row = Row;
         col = Col;
+        grid = gridState;
+        epoch = grid.getEpoch();
+        signalOrigin = SignalStatistics.NO_ORIGIN;
         connections = new ConnectionElement [MAXCONNECTIONS];        
         font = new Font("Arial", Font.BOLD, 7);
     }
@@ -44,6 +62,7 @@ public class ProteinElement
     public void setProtein(String Name)
     {
         proteinName = new String(Name);
+        if (!hasProtein) grid.getTiles().addProtein(row, col);
         hasProtein = true;
     }
     
@@ -56,43 +75,97 @@ public class ProteinElement
     public boolean getIsReceptor()       { return isReceptor; }  // true if receptor protein
     public void setIsReceptor(boolean v) { isReceptor = v;    }
     
-    public void setActive(boolean value)
+    // Add this protein to pathway 'pathwayId'
+    public void addToPathway(int pathwayId)
     {
-        active = value;
+        membership |= (1L << pathwayId);
     }
     
+    public long getMembership()   { return membership; }
+    public GridState getGrid()    { return grid;       }
+    
+    // Active if it belongs to at least one active pathway
     public boolean getActive()
     {
-        return active;
+        return grid.isActive(membership);
     } 
     
+    // Active pathway that moves this protein's signal (-1 if none)
+    public int getOwner()
+    {
+        return grid.owner(membership);
+    }
+    
+    // Concentration (0 to 1) shown in concentration mode
+    public void setConcentration(double value)
+    {
+        sync();
+        concentration = value;
+        showConcentration = true;
+    }
+    
+    public void clearConcentration()    { sync(); showConcentration = false; }
+    public double getConcentration()    { return concentration;      }
+    
     public boolean isNuclearProtein()        { return nuclearProtein; }  // true if nucleus protein
     public void setNuclearProtein(boolean v) { nuclearProtein = v;    }
     
+    //---------------------------------------------------------
+    // Signals, suppressor and concentration shown belong to one
+    // game. A reset only advances the grid epoch (GridState.
+    // nextEpoch); state stamped with an older epoch reads as
+    // cleared and is cleared for real on the next write.
+    //---------------------------------------------------------
+    
+    private boolean current() { return epoch == grid.getEpoch(); }
+    
+    private void sync()
+    {
+        if (current()) return;
+        epoch = grid.getEpoch();
+        hasOncogenicSignal  = false;
+        hasSuppressorSignal = false;
+        showConcentration   = false;
+        signalOrigin = SignalStatistics.NO_ORIGIN;
+    }
+    
     public void setOncogenicSignal(boolean value)
     {
+        sync();
+        if (value != hasOncogenicSignal)
+            grid.getTiles().addSignal(row, col, value ? 1 : -1);  // keep tile counts in sync
         hasOncogenicSignal = value;
     }
     
     public void setSuppressorSignal(boolean value)
     {
+        sync();
         hasSuppressorSignal = value;     
+        grid.setSuppressor(row, col, value);  // keep occupancy bitset in sync
     }
     
+    // Origin of the oncogenic signal (see SignalStatistics)
+    public void setSignalOrigin(int origin) { sync(); signalOrigin = origin; }
+    public int  getSignalOrigin()           { return current() ? signalOrigin : SignalStatistics.NO_ORIGIN; }
+    
     public boolean hasOncogenicSignal()
     {
-        return hasOncogenicSignal;
+        return hasOncogenicSignal && current();
     }
     
     public boolean hasSuppressorSignal()
     {
-        return hasSuppressorSignal;
+        return hasSuppressorSignal && current();
     }
    
     
     public int getRow() { return row; }
     public int getCol() { return col; }
     
+    public boolean hasProtein()                   { return hasProtein;         }  // true if real protein
+    public int getConnectionCount()               { return connectionCount;    }
+    public ConnectionElement getConnection(int i) { return connections[i];     }
+    
     public void createConnection()
     {
         if (connectionCount == MAXCONNECTIONS) 
@@ -113,6 +186,14 @@ public class ProteinElement
     
     public void createConnection(int endRow, int endCol, boolean activating)
     {
+        // Pathways sharing a protein may wire the same connection twice
+        for (int i = 0; i < connectionCount; i++)
+        {
+            if (connections[i].getToRow() == endRow && connections[i].getToCol() == endCol &&
+                connections[i].isStimulating() == activating)
+                return;
+        }
+        
         if (connectionCount == MAXCONNECTIONS) 
         {
             System.out.println("Error: Max amount of connections reached.");
@@ -127,12 +208,45 @@ public class ProteinElement
     // Draw one Protein Element and all its direct connections
     //-------------------------------------------------------------
     public void Draw(int x, int y, Graphics g, int xStep, int yStep, boolean oncoOpen, boolean suppressorOpen)
+    {
+        DrawCell(x, y, g, xStep, yStep, oncoOpen, suppressorOpen);
+        
+        // Show all direct connections
+        for (int i = 0; i < connectionCount; i++)
+        {
+            connections[i].Draw(g, xStep, yStep);   
+        }
+    }
+    
+    //-------------------------------------------------------------
+    // Draw the protein and signals of this cell, no connections
+    // (a viewport draws the visible connections itself)
+    //-------------------------------------------------------------
+    public void DrawCell(int x, int y, Graphics g, int xStep, int yStep, boolean oncoOpen, boolean suppressorOpen)
+    {
+        DrawCell(x, y, g, xStep, yStep, oncoOpen, suppressorOpen, true);
+    }
+    
+    //-------------------------------------------------------------
+    // As above; without 'labels' the protein is a plain box that
+    // fills most of the cell (for cells too small for the name)
+    //-------------------------------------------------------------
+    public void DrawCell(int x, int y, Graphics g, int xStep, int yStep, boolean oncoOpen, boolean suppressorOpen,
+                         boolean labels)
     {
         // Show protein if present
         if (hasProtein)
         {
             // Active protein is shown Green, inactive as white
+            boolean active = getActive();
             Color color = active ? Color.GREEN : Color.WHITE;
+            
+            // In concentration mode active proteins are shaded by concentration
+            if (active && showConcentration && current())
+            {
+                int shade = (int) (concentration * (SHADES.length - 1) + 0.5);
+                color = SHADES[Math.max(0, Math.min(SHADES.length - 1, shade))];
+            }
           
             // receptor protein is shown in magenta
             if (getIsReceptor()) color = Color.MAGENTA;
@@ -141,14 +255,19 @@ public class ProteinElement
             if (isNuclearProtein()) color = Color.PINK;
             
             g.setColor(color);     
-            g.fillRect(x + 5, y + 3, xStep - 10, yStep - 6);  
-            g.setColor(Color.BLACK);
-            g.setFont(font);
-            g.drawString(proteinName, x + 7, y + 2 + yStep/2);
+            if (labels)
+            {
+                g.fillRect(x + 5, y + 3, xStep - 10, yStep - 6);  
+                g.setColor(Color.BLACK);
+                g.setFont(font);
+                g.drawString(proteinName, x + 7, y + 2 + yStep/2);
+            }
+            else
+                g.fillRect(x + xStep/6, y + yStep/6, xStep - 2*(xStep/6), yStep - 2*(yStep/6));
         }
         
         // Show Oncogenic Signal if present
-        if (hasOncogenicSignal)
+        if (hasOncogenicSignal())
         {
             g.setColor(Color.ORANGE);
             if (oncoOpen)
@@ -158,7 +277,7 @@ public class ProteinElement
         }
         
         // Show Suppressor Signal if present
-        if (hasSuppressorSignal)
+        if (hasSuppressorSignal())
         {
             g.setColor(Color.BLUE);
             if (suppressorOpen)
@@ -166,22 +285,17 @@ public class ProteinElement
             else
                 g.fillOval(x + xStep/6, y + yStep/6, xStep * 3/4, yStep * 3/4);
         }
-        
-        // Show all direct connections
-        for (int i = 0; i < connectionCount; i++)
-        {
-            connections[i].Draw(g, xStep, yStep);   
-        }
     }    
     
     
     //---------------------------------------------------------
-    // Move oncogenic signal one step along its connections.
-    // For easy access to all connected proteins this function
-    // takes a reference to entire protein grid 'network'
+    // Collect the proteins the oncogenic signal moves to in one
+    // step. The targets are appended to 'targets' starting at
+    // 'count'; the new count is returned. Nothing is modified,
+    // so this may run in parallel for different pathways.
     //---------------------------------------------------------
     
-    public void moveOnco(ProteinElement [][] network, ScorePanel score)
+    public int collectOncoTargets(ProteinElement [][] network, ProteinElement [] targets, int count)
     {   
         // for each connection
         for (int i = 0; i < connectionCount; i++)
@@ -190,17 +304,59 @@ public class ProteinElement
             int toRow = connections[i].getToRow();
             int toCol = connections[i].getToCol();
             
-            // get protein element at the 'to' location and set onco signal
-            ProteinElement npe = network[toRow][toCol];
-            npe.setOncogenicSignal(true);
-            
-            // If oncogenic signal reaches a nuclear protein, record a loss:-(
-            if (npe.isNuclearProtein())
-                score.recordLoss();
+            targets[count] = network[toRow][toCol];
+            count++;
+        }
+        return count;
+    }
+    
+    
+    //---------------------------------------------------------
+    // Mark that a signal is delivered here in signal step 'step'.
+    // Returns false if one was already delivered in this step:
+    // converging signals merge into one.
+    //---------------------------------------------------------
+    
+    public boolean markDelivered(int step)
+    {
+        if (deliveredStep == step) return false;
+        deliveredStep = step;
+        return true;
+    }
+    
+    
+    //---------------------------------------------------------
+    // An oncogenic signal from 'origin' arrives at this protein.
+    // A suppressor sitting here intercepts it and scores a kill.
+    // A signal arriving at a lit protein merges into it and the
+    // protein keeps its first origin. If it is a nuclear protein,
+    // record a loss:-(
+    //
+    // Returns true if the signal landed, false if intercepted
+    //---------------------------------------------------------
+    
+    public boolean receiveOnco(ScoreKeeper score, int origin)
+    {
+        if (grid.hasSuppressor(row, col))
+        {
+            score.recordWin(origin);
+            return false;
+        }
+        
+        sync();
+        if (!hasOncogenicSignal)
+            signalOrigin = origin;
+        setOncogenicSignal(true);
+        
+        SignalHeatmap heatmap = grid.getHeatmap();
+        if (heatmap != null) heatmap.recordTraffic(row, col);
+        
+        if (isNuclearProtein())
+        {
+            score.recordLoss(origin);
+            if (heatmap != null) heatmap.recordDamage(row, col);
         }
         
-        // After moving the oncogenic signal, set it to false for non-receptor proteins
-        if (!isReceptor)
-            this.setOncogenicSignal(false);       
+        return true;
     }
 }
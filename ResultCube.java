@@ -0,0 +1,132 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/26/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.io.PrintWriter;
+
+//--------------------------------------------------------------------
+// Multi-dimensional table of doubles with named dimensions and
+// labelled indices, stored flat in row major order (last dimension
+// fastest). slice() fixes one dimension and returns a smaller cube, so
+// e.g. "score by period and level for win=2, loss=1" is two slices.
+//--------------------------------------------------------------------
+
+class ResultCube
+{
+    private String []   names;     // dimension names
+    private String [][] labels;    // labels of the indices of each dimension
+    private int []      size;      // length of each dimension
+    private int []      stride;    // distance between neighbours of each dimension
+    private double []   data;
+
+    public ResultCube(String [] dimNames, String [][] dimLabels)
+    {
+        names  = dimNames;
+        labels = dimLabels;
+        size   = new int [names.length];
+        stride = new int [names.length];
+
+        int total = 1;
+        for (int d = names.length - 1; d >= 0; d--)
+        {
+            size[d]   = labels[d].length;
+            stride[d] = total;
+            total    *= size[d];
+        }
+        data = new double [total];
+    }
+
+    public int      getDimensions()        { return names.length; }
+    public String   getName(int d)         { return names[d];     }
+    public int      getSize(int d)         { return size[d];      }
+    public String   getLabel(int d, int i) { return labels[d][i]; }
+
+    // Dimension called 'name', -1 if none
+    public int dimension(String name)
+    {
+        for (int d = 0; d < names.length; d++)
+            if (names[d].equals(name)) return d;
+        return -1;
+    }
+
+    public double get(int... index)            { return data[offset(index)]; }
+    public void   set(double value, int... index) { data[offset(index)] = value; }
+
+    private int offset(int [] index)
+    {
+        int off = 0;
+        for (int d = 0; d < index.length; d++) off += index[d] * stride[d];
+        return off;
+    }
+
+
+    //------------------------------------------------------------------
+    // Cube of the cells with index 'i' in dimension 'd' (one dimension
+    // less)
+    //------------------------------------------------------------------
+
+    public ResultCube slice(int d, int i)
+    {
+        String []   n = new String [names.length - 1];
+        String [][] l = new String [names.length - 1][];
+        for (int k = 0, j = 0; k < names.length; k++)
+        {
+            if (k == d) continue;
+            n[j] = names[k];
+            l[j] = labels[k];
+            j++;
+        }
+
+        ResultCube cube = new ResultCube(n, l);
+        int [] index = new int [names.length];
+        index[d] = i;
+        for (int c = 0; c < cube.data.length; c++)
+        {
+            // index of cell c of the slice in this cube
+            int rest = c;
+            for (int k = 0, j = 0; k < names.length; k++)
+            {
+                if (k == d) continue;
+                index[k] = rest / cube.stride[j] % cube.size[j];
+                j++;
+            }
+            cube.data[c] = data[offset(index)];
+        }
+        return cube;
+    }
+
+    // Slice by dimension name and index label
+    public ResultCube slice(String name, String label)
+    {
+        int d = dimension(name);
+        for (int i = 0; i < size[d]; i++)
+            if (labels[d][i].equals(label)) return slice(d, i);
+        throw new IllegalArgumentException("No " + label + " in " + name);
+    }
+
+
+    //------------------------------------------------------------------
+    // Write one CSV row per cell: the label of each dimension, then the
+    // value
+    //------------------------------------------------------------------
+
+    public void write(PrintWriter out)
+    {
+        out.println(String.join(",", names) + ",value");
+
+        int [] index = new int [names.length];
+        for (int c = 0; c < data.length; c++)
+        {
+            StringBuilder sb = new StringBuilder();
+            for (int d = 0; d < names.length; d++)
+            {
+                index[d] = c / stride[d] % size[d];
+                sb.append(labels[d][index[d]]).append(',');
+            }
+            out.println(sb.append(data[c]));
+        }
+        out.flush();
+    }
+}
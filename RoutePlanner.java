@@ -0,0 +1,195 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/18/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Shortest suppressor routes between two cells of the grid.
+//
+// Routes are found with A* (Manhattan distance heuristic) over the
+// walkable cells, i.e. the cells outside the membrane and nucleus
+// restricted zones. Walkability is copied once from the DistanceField.
+// The open set is a binary heap kept in int arrays, and per-cell search
+// state is invalidated with a search stamp, so a search allocates only
+// the returned route.
+//
+// Found routes are kept in a direct mapped cache keyed by (from, to),
+// so repeated clicks on the same destination cost one lookup.
+//--------------------------------------------------------------------
+
+class RoutePlanner
+{
+    private int rows, cols;
+    private boolean [] walkable;    // walkable cells (row*cols+col)
+
+    private int [] gScore;          // moves from start of each reached cell
+    private int [] parent;          // previous cell on the best route
+    private int [] visit;           // search stamp when the cell was reached
+    private int [] closed;          // search stamp when the cell was expanded
+    private int    stamp;
+
+    private int [] heap;            // open set: cells ordered by f = g + h
+    private int [] heapKey;         // f of each heap entry
+    private int    heapSize;
+
+    private long []  cacheKey;      // (from << 32 | to) + 1 of each cache slot, 0 if empty
+    private int [][] cacheRoute;    // cached routes
+
+    public static final int CACHE_SIZE = 1024;   // power of two
+
+    private static final int [] DROW = { -1, 1, 0, 0 };
+    private static final int [] DCOL = { 0, 0, -1, 1 };
+
+    public RoutePlanner(DistanceField dist)
+    {
+        rows = dist.getRows();
+        cols = dist.getCols();
+
+        int n = rows * cols;
+        walkable = new boolean [n];
+        for (int row = 0; row < rows; row++)
+            for (int col = 0; col < cols; col++)
+                walkable[row * cols + col] = dist.isWalkable(row, col);
+
+        gScore  = new int [n];
+        parent  = new int [n];
+        visit   = new int [n];
+        closed  = new int [n];
+        heap    = new int [4 * n];
+        heapKey = new int [4 * n];
+
+        cacheKey   = new long [CACHE_SIZE];
+        cacheRoute = new int [CACHE_SIZE][];
+    }
+
+    public boolean isWalkable(int row, int col)
+    {
+        return row >= 0 && col >= 0 && row < rows && col < cols && walkable[row * cols + col];
+    }
+
+
+    //------------------------------------------------------------------
+    // Route from (r1, c1) to (r2, c2) as the cells (row*cols+col) to
+    // visit in order, excluding the start. Returns null if either cell
+    // is not walkable or there is no route. The returned array is shared
+    // through the cache and must not be modified.
+    //------------------------------------------------------------------
+
+    public int [] route(int r1, int c1, int r2, int c2)
+    {
+        if (!isWalkable(r1, c1) || !isWalkable(r2, c2)) return null;
+
+        int from = r1 * cols + c1;
+        int to   = r2 * cols + c2;
+
+        long key = (((long) from << 32) | to) + 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 54) & (CACHE_SIZE - 1);
+        if (cacheKey[slot] == key) return cacheRoute[slot];
+
+        int [] path = search(from, to);
+        cacheKey[slot]   = key;
+        cacheRoute[slot] = path;
+        return path;
+    }
+
+    // A* from cell 'from' to cell 'to'
+    private int [] search(int from, int to)
+    {
+        stamp++;
+        heapSize = 0;
+
+        int goalRow = to / cols, goalCol = to % cols;
+
+        gScore[from] = 0;
+        parent[from] = -1;
+        visit[from]  = stamp;
+        push(from, distance(from, goalRow, goalCol));
+
+        while (heapSize > 0)
+        {
+            int cell = pop();
+            if (closed[cell] == stamp) continue;   // stale heap entry
+            closed[cell] = stamp;
+
+            if (cell == to) return buildRoute(from, to);
+
+            int row = cell / cols, col = cell % cols;
+            int g = gScore[cell] + 1;
+
+            for (int dir = 0; dir < 4; dir++)
+            {
+                int r = row + DROW[dir];
+                int c = col + DCOL[dir];
+                if (!isWalkable(r, c)) continue;
+
+                int next = r * cols + c;
+                if (closed[next] == stamp) continue;
+                if (visit[next] == stamp && gScore[next] <= g) continue;
+
+                visit[next]  = stamp;
+                gScore[next] = g;
+                parent[next] = cell;
+                push(next, g + distance(next, goalRow, goalCol));
+            }
+        }
+        return null;
+    }
+
+    private int distance(int cell, int row, int col)
+    {
+        return Math.abs(cell / cols - row) + Math.abs(cell % cols - col);
+    }
+
+    private int [] buildRoute(int from, int to)
+    {
+        int [] path = new int [gScore[to]];
+        for (int cell = to, i = path.length - 1; cell != from; cell = parent[cell], i--)
+            path[i] = cell;
+        return path;
+    }
+
+
+    //------------------------------------------------------------------
+    // Binary min-heap on heapKey. A cell may be pushed again with a
+    // better key; the stale entry is skipped when popped. Each cell is
+    // pushed at most once per neighbour, so 4 * cells entries suffice.
+    //------------------------------------------------------------------
+
+    private void push(int cell, int key)
+    {
+        int i = heapSize++;
+        while (i > 0)
+        {
+            int p = (i - 1) >>> 1;
+            if (heapKey[p] <= key) break;
+            heap[i]    = heap[p];
+            heapKey[i] = heapKey[p];
+            i = p;
+        }
+        heap[i]    = cell;
+        heapKey[i] = key;
+    }
+
+    private int pop()
+    {
+        int top = heap[0];
+        int cell = heap[--heapSize];
+        int key  = heapKey[heapSize];
+
+        int i = 0;
+        while (true)
+        {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) child++;
+            if (heapKey[child] >= key) break;
+            heap[i]    = heap[child];
+            heapKey[i] = heapKey[child];
+            i = child;
+        }
+        heap[i]    = cell;
+        heapKey[i] = key;
+        return top;
+    }
+}
@@ -0,0 +1,18 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/16/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Receives kills and nuclear damages from the game rules (Pathway,
+// ProteinElement and Suppressor). ScorePanel implements it for the
+// interactive game; HeadlessGame implements it with plain counters so
+// games can be simulated without any Swing components.
+//--------------------------------------------------------------------
+
+interface ScoreKeeper
+{
+    void recordWin(int origin);    // a suppressor killed a signal from 'origin'
+    void recordLoss(int origin);   // a signal from 'origin' reached a nuclear protein
+}
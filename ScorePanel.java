@@ -18,7 +18,7 @@ import java.util.logging.Logger;
 // and displays them in designated area on the screen.
 //---------------------------------------------------------------------------------
 
-class ScorePanel extends JPanel implements ChangeListener
+class ScorePanel extends JPanel implements ChangeListener, ScoreKeeper
 {
     private JTextArea   scoreArea;              // Score text area
     private JTextArea   mutatedGenesArea;       // Mutated Genes text area
@@ -36,6 +36,8 @@ class ScorePanel extends JPanel implements ChangeListener
     private int []      theScore;      // Score at each level
     private int         grandScore;    // Overall Grand Score
     
+    private SignalStatistics stats;    // kills and damages per signal origin
+    
     private String[]    mutatedGenes;      // mutated genes string array
     private int         mutatedGeneCount;  // mutated genes count
     
@@ -46,11 +48,13 @@ class ScorePanel extends JPanel implements ChangeListener
     public static final int MAX_MUTATED_GENES    = 200;
     public static final int MAX_POSSIBLE_CANCERS = 50;
     
-    private final int WIN_POINT  = 2;
-    private final int LOSS_POINT = 1;
+    public static final int WIN_POINT  = 2;
+    public static final int LOSS_POINT = 1;
     
     public void setCellPanel(CellPanel cp) { cell = cp; }
     
+    public SignalStatistics getStatistics() { return stats; }
+    
     //----------------------------------------------------------------
     // Reset current level score and subtract it from grand score
     //----------------------------------------------------------------
@@ -81,6 +85,7 @@ class ScorePanel extends JPanel implements ChangeListener
             theScore[level] = 0;
         }  
         grandScore = 0;
+        stats.reset();
         
         mutatedGeneCount = 0;
         susceptibleCancerCount = 0;
@@ -118,6 +123,20 @@ class ScorePanel extends JPanel implements ChangeListener
         displayScore();
     }
     
+    // Record a win against a signal from 'origin'
+    public void recordWin(int origin)
+    {
+        stats.recordKill(origin);
+        recordWin();
+    }
+    
+    // Record a loss caused by a signal from 'origin'
+    public void recordLoss(int origin)
+    {
+        stats.recordDamage(origin);
+        recordLoss();
+    }
+    
     
     // Record proteins and cancers of Pathway 'path' for display
     public void recordPathwayProteinsAndCancers(Pathway path)
@@ -187,6 +206,8 @@ class ScorePanel extends JPanel implements ChangeListener
         losses   = new int [MAX_LEVEL+1];
         theScore = new int [MAX_LEVEL+1];
         
+        stats = new SignalStatistics();
+        
         currentFont = new Font("Arial", Font.PLAIN, 20);
         
         this.setLayout(new GridLayout(4, 1, 2, 2) ); // 4x1 grid
@@ -314,6 +335,21 @@ class ScorePanel extends JPanel implements ChangeListener
         // Write Grand score
         output.print("Grand Score: " + grandScore + "\n\n");
         
+        // Write kills and damages by originating pathway and receptor
+        for (int p = 0; p < Pathway.NAMES.length; p++)
+        {
+            for (int r = 0; r < SignalStatistics.MAX_RECEPTORS; r++)
+            {
+                int origin = SignalStatistics.origin(p, r);
+                if (stats.getKills(origin) > 0 || stats.getDamages(origin) > 0)
+                {
+                    output.print(Pathway.NAMES[p] + " receptor " + r + ": " +
+                                 stats.getKills(origin) + " Kills and " +
+                                 stats.getDamages(origin) + " Damages \n");
+                }
+            }
+        }
+        
         output.close();
     }
 }
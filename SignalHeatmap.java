@@ -0,0 +1,175 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 7/12/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.awt.*;
+import java.awt.image.*;
+
+//--------------------------------------------------------------------
+// Where oncogenic signals have been and where they hurt the nucleus,
+// accumulated over a whole session or a batch of games.
+//
+// Every cell keeps two counts: signals that landed on it (traffic) and
+// signals that reached it as a nuclear protein (damage). Counts fade
+// by a decay factor every signal step, so old hot paths cool down (a
+// factor of 1 keeps every count, e.g. for a batch of games).
+//
+// Decaying every cell each step would touch the whole grid, so counts
+// are stored multiplied by a growing 'scale' instead: a new count adds
+// 'scale', and a decay only divides scale by the factor. When scale gets
+// too big everything is brought back to real values once.
+//
+// The overlay is an image with one pixel per cell. The colors are
+// relative to a power of two ('norm', in real counts) at or above the
+// hottest count since the last clear, so cells fade as their counts
+// decay, also when no new signals come. Tiles whose cells got new
+// counts are recolored; all cells are recolored when norm doubles, and
+// FADE_TURNS decay steps recolor every tile once, a few tiles per step,
+// so fading costs a bounded share of the image per step.
+//--------------------------------------------------------------------
+
+class SignalHeatmap
+{
+    private int rows, cols;
+    private float [] traffic;          // landed signals per cell, times scale
+    private float [] damage;           // nuclear damages per cell, times scale
+    private float    scale = 1.0f;     // weight of a count made now
+    private float    norm  = 1.0f;     // power of two >= every real count
+    private float    decay = DEFAULT_DECAY;  // kept per signal step
+
+    private int tileRows, tileCols;
+    private boolean [] dirtyTile;      // tile needs recoloring
+    private boolean    allDirty;       // every tile needs recoloring
+    private int        fadeTile;       // next tile recolored for fading
+    private BufferedImage image;       // one ARGB pixel per cell
+    private int []     pixels;         // the image's pixels
+
+    public static final float DEFAULT_DECAY = 0.95f;   // kept per signal step
+    public static final int   TILE          = 16;      // tile side in cells
+    private static final float RESCALE      = 1e20f;   // scale that triggers rescaling
+    private static final int   FADE_TURNS   = 2;       // decay steps to recolor every tile
+
+    public SignalHeatmap(int Rows, int Cols)
+    {
+        rows = Rows;
+        cols = Cols;
+        traffic = new float [rows * cols];
+        damage  = new float [rows * cols];
+
+        tileRows  = (rows + TILE - 1) / TILE;
+        tileCols  = (cols + TILE - 1) / TILE;
+        dirtyTile = new boolean [tileRows * tileCols];
+
+        image  = new BufferedImage(cols, rows, BufferedImage.TYPE_INT_ARGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    public void  setDecay(float value) { decay = value; }
+    public float getDecay()            { return decay;  }
+
+    // A signal landed on cell (row, col)
+    public void recordTraffic(int row, int col) { add(traffic, row, col); }
+
+    // A signal reached the nuclear protein at (row, col)
+    public void recordDamage(int row, int col)  { add(damage, row, col); }
+
+    private void add(float [] counts, int row, int col)
+    {
+        int cell = row * cols + col;
+        counts[cell] += scale;
+        while (counts[cell] > norm * scale)
+        {
+            norm *= 2;
+            allDirty = true;
+        }
+        dirtyTile[(row / TILE) * tileCols + col / TILE] = true;
+    }
+
+    // Real (decayed) counts of cell (row, col)
+    public double getTraffic(int row, int col) { return traffic[row * cols + col] / scale; }
+    public double getDamage(int row, int col)  { return damage[row * cols + col] / scale; }
+
+
+    //------------------------------------------------------------------
+    // One signal step passed: fade all counts by the decay factor
+    //------------------------------------------------------------------
+
+    public void decay()
+    {
+        if (decay >= 1.0f) return;   // nothing fades
+        scale /= decay;
+
+        // recolor the next share of the tiles as their counts faded
+        int share = (dirtyTile.length + FADE_TURNS - 1) / FADE_TURNS;
+        for (int i = 0; i < share; i++)
+        {
+            dirtyTile[fadeTile] = true;
+            fadeTile = (fadeTile + 1) % dirtyTile.length;
+        }
+
+        if (scale < RESCALE) return;
+
+        // norm is in real counts, so it stays as it is
+        for (int i = 0; i < traffic.length; i++)
+        {
+            traffic[i] /= scale;
+            damage[i]  /= scale;
+        }
+        scale = 1.0f;
+    }
+
+    // Forget everything
+    public void clear()
+    {
+        java.util.Arrays.fill(traffic, 0.0f);
+        java.util.Arrays.fill(damage,  0.0f);
+        scale = norm = 1.0f;
+        allDirty = true;
+    }
+
+
+    //------------------------------------------------------------------
+    // The overlay image, one pixel per cell, with the changed tiles
+    // recolored. Traffic is yellow, turning red with the share of
+    // damage; opacity grows with the square root of the count.
+    //------------------------------------------------------------------
+
+    public BufferedImage getImage()
+    {
+        for (int t = 0; t < dirtyTile.length; t++)
+        {
+            if (!allDirty && !dirtyTile[t]) continue;
+            dirtyTile[t] = false;
+
+            int row0 = (t / tileCols) * TILE, row1 = Math.min(rows, row0 + TILE);
+            int col0 = (t % tileCols) * TILE, col1 = Math.min(cols, col0 + TILE);
+            for (int row = row0; row < row1; row++)
+            {
+                for (int col = col0; col < col1; col++)
+                {
+                    int cell = row * cols + col;
+                    float hot = Math.max(traffic[cell], damage[cell]);
+                    if (hot <= 0.0f)
+                    {
+                        pixels[cell] = 0;
+                        continue;
+                    }
+
+                    int alpha = (int) (220 * Math.sqrt(hot / (norm * scale)));
+                    int green = (int) (220 * (1.0f - damage[cell] / hot));
+                    pixels[cell] = (alpha << 24) | (255 << 16) | (green << 8);
+                }
+            }
+        }
+        allDirty = false;
+        return image;
+    }
+
+    // Draw the overlay over cells of xStep x yStep pixels
+    public void draw(Graphics g, int xStep, int yStep)
+    {
+        g.drawImage(getImage(), 0, 0, xStep * cols, yStep * rows, null);
+    }
+}
@@ -0,0 +1,81 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/11/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Kill and damage counters per signal origin.
+//
+// Every oncogenic signal carries its origin packed into one int:
+// the pathway id in the upper bits and the receptor index (0 or 1)
+// of that pathway in the lower RECEPTOR_BITS bits. The packed origin
+// is used directly as index into primitive counter arrays.
+//--------------------------------------------------------------------
+
+class SignalStatistics
+{
+    public static final int RECEPTOR_BITS = 1;
+    public static final int MAX_RECEPTORS = 1 << RECEPTOR_BITS;
+    public static final int MAX_ORIGINS   = GridState.MAX_PATHWAYS * MAX_RECEPTORS;
+
+    public static final int NO_ORIGIN = -1;   // signal of unknown origin
+
+    private long [] kills;     // kills per origin
+    private long [] damages;   // nuclear damages per origin
+
+    public SignalStatistics()
+    {
+        kills   = new long [MAX_ORIGINS];
+        damages = new long [MAX_ORIGINS];
+    }
+
+    // Pack pathway id and receptor index into one origin
+    public static int origin(int pathwayId, int receptorIndex)
+    {
+        return (pathwayId << RECEPTOR_BITS) | receptorIndex;
+    }
+
+    public static int pathwayOf(int origin)  { return origin >>> RECEPTOR_BITS;      }
+    public static int receptorOf(int origin) { return origin & (MAX_RECEPTORS - 1); }
+
+    public void recordKill(int origin)
+    {
+        if (origin >= 0) kills[origin]++;
+    }
+
+    public void recordDamage(int origin)
+    {
+        if (origin >= 0) damages[origin]++;
+    }
+
+    public long getKills(int origin)    { return kills[origin];   }
+    public long getDamages(int origin)  { return damages[origin]; }
+
+    // Totals over both receptors of a pathway
+    public long getPathwayKills(int pathwayId)
+    {
+        return kills[origin(pathwayId, 0)] + kills[origin(pathwayId, 1)];
+    }
+
+    public long getPathwayDamages(int pathwayId)
+    {
+        return damages[origin(pathwayId, 0)] + damages[origin(pathwayId, 1)];
+    }
+
+    // Add the counters of another statistics object (batch runs)
+    public void add(SignalStatistics other)
+    {
+        for (int i = 0; i < MAX_ORIGINS; i++)
+        {
+            kills[i]   += other.kills[i];
+            damages[i] += other.damages[i];
+        }
+    }
+
+    public void reset()
+    {
+        java.util.Arrays.fill(kills, 0);
+        java.util.Arrays.fill(damages, 0);
+    }
+}
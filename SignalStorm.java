@@ -31,6 +31,8 @@ public class SignalStorm {
     private JButton    pauseButton;  // Push buttton to pause the game
     private JButton    resumeButton; // Push button to resume after pause
     
+    private static final String CONTROLLER_COMMAND = "Controller ";  // prefix of controller menu commands
+    
     
     //--------------------------------------------------------------------
     // Action listener to handle all the menu and button action events
@@ -135,6 +137,51 @@ public class SignalStorm {
                  
             if (aIndex >= 0)
                 cell.setAlterationsPreference(aIndex, selected);
+            
+            //--------------------------------------------------
+            // Simulation Mode Selection
+            //--------------------------------------------------
+            if (command.equals("Concentration"))
+                cell.setConcentrationMode(selected);
+            
+            if (command.equals("Timed"))
+                cell.setTimedMode(selected);
+            
+            if (command.equals("Parallel"))
+                cell.setParallelStepping(selected);
+            
+            if (command.equals("Hints"))
+                cell.setHintMode(selected);
+            
+            if (command.equals("Therapy"))
+                cell.setTherapyMode(selected);
+            
+            if (command.equals("Heatmap"))
+                cell.setHeatmapMode(selected);
+            
+            //--------------------------------------------------
+            // Autopilot Selection
+            //--------------------------------------------------
+            int sIndex = -1;
+            
+                 if (command.equals("Top Left"))     sIndex = 0;
+            else if (command.equals("Top Right"))    sIndex = 1;
+            else if (command.equals("Bottom Left"))  sIndex = 2;
+            else if (command.equals("Bottom Right")) sIndex = 3;
+                 
+            if (sIndex >= 0)
+                cell.setAutopilot(sIndex, selected);
+            
+            //--------------------------------------------------
+            // Controller Selection ("Controller <index> <name>")
+            //--------------------------------------------------
+            if (command.startsWith(CONTROLLER_COMMAND))
+            {
+                String rest = command.substring(CONTROLLER_COMMAND.length());
+                int cIndex = rest.charAt(0) - '0';
+                String name = rest.substring(2);
+                cell.setController(cIndex, name.equals("Keys") ? null : name);
+            }
         } 
     } 
    
@@ -168,6 +215,19 @@ public class SignalStorm {
           menuItem.setSelected(true);
     }
     
+    // Create a RadioButtonMenuItem in 'group', register listener and add it to menu
+    public void addRadioMenuItem(JMenu menu, ButtonGroup group, String label, String command, ActionListener listener) 
+    {
+      JRadioButtonMenuItem menuItem = new JRadioButtonMenuItem(label);
+      menuItem.setActionCommand(command);
+      group.add(menuItem);
+      menu.add(menuItem);
+      menuItem.addActionListener(listener);
+      
+      if (label.equals("Keys"))
+          menuItem.setSelected(true);
+    }
+    
     // Create a menuItem, register listener and add it to menu
     public void addMenuItem(JMenu menu, String command, ActionListener listener) 
     {
@@ -209,6 +269,43 @@ public class SignalStorm {
         addCheckBoxMenuItem(alterationsMenu, "Expression", handler);
         menuBar.add(alterationsMenu);   
         
+        JMenu modeMenu = new JMenu("Mode");
+        addCheckBoxMenuItem(modeMenu, "Concentration", handler);
+        addCheckBoxMenuItem(modeMenu, "Timed", handler);
+        addCheckBoxMenuItem(modeMenu, "Parallel", handler);
+        addCheckBoxMenuItem(modeMenu, "Hints", handler);
+        addCheckBoxMenuItem(modeMenu, "Therapy", handler);
+        addCheckBoxMenuItem(modeMenu, "Heatmap", handler);
+        menuBar.add(modeMenu);
+        
+        JMenu autopilotMenu = new JMenu("Autopilot");
+        addCheckBoxMenuItem(autopilotMenu, "Top Left", handler);
+        addCheckBoxMenuItem(autopilotMenu, "Top Right", handler);
+        addCheckBoxMenuItem(autopilotMenu, "Bottom Left", handler);
+        addCheckBoxMenuItem(autopilotMenu, "Bottom Right", handler);
+        menuBar.add(autopilotMenu);
+        
+        // Plug-in suppressor controllers (only if any were found)
+        ControllerHost host = cell.getControllers();
+        if (host.getControllerCount() > 0)
+        {
+            JMenu controllerMenu = new JMenu("Controller");
+            String [] corners = { "Top Left", "Top Right", "Bottom Left", "Bottom Right" };
+            for (int i = 0; i < corners.length; i++)
+            {
+                JMenu cornerMenu = new JMenu(corners[i]);
+                ButtonGroup group = new ButtonGroup();
+                addRadioMenuItem(cornerMenu, group, "Keys", CONTROLLER_COMMAND + i + " Keys", handler);
+                for (int c = 0; c < host.getControllerCount(); c++)
+                {
+                    String name = host.getController(c).getName();
+                    addRadioMenuItem(cornerMenu, group, name, CONTROLLER_COMMAND + i + " " + name, handler);
+                }
+                controllerMenu.add(cornerMenu);
+            }
+            menuBar.add(controllerMenu);
+        }
+        
         JMenu resetMenu = new JMenu("Reset");
         addMenuItem(resetMenu, "Full", handler);
         addMenuItem(resetMenu, "Current", handler);
@@ -249,25 +346,22 @@ public class SignalStorm {
         frame = new JFrame("SignalStorm");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);  
         
-        frame.setLayout(null);
-        score.setBounds(1005, 0, 180, 690);
-        cell.setBounds(0, 0, 1000, 700);
+        // cell panel takes all the room the score panel leaves
+        frame.setLayout(new BorderLayout(5, 0));
+        score.setPreferredSize(new Dimension(180, 690));
        
-        frame.getContentPane().add(cell); 
-        frame.getContentPane().add(score);
+        frame.getContentPane().add(cell, BorderLayout.CENTER); 
+        frame.getContentPane().add(score, BorderLayout.EAST);
         
         // Add menu bar
         frame.setJMenuBar(menuBar);
         
-        // set frame size in pixels
+        // size frame to the panels
         frame.setLocation(50, 10);
-        frame.setSize(1200, 720); 
+        frame.pack(); 
         
         // Make frame visible
         frame.setVisible(true);  
-        
-        // Make frame not resizable
-        frame.setResizable(false);
     }
 
     public static void main(String[] args) {
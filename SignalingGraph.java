@@ -0,0 +1,313 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/2/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// SignalingGraph is a compact, array based snapshot of the protein
+// connections in the grid. Each protein becomes a node (0..n-1) and
+// each ConnectionElement becomes an edge. Outgoing edges are kept in
+// compressed rows: the edges of node v are edgeStart[v]..edgeStart[v+1]-1
+//
+// The simulation engines and analysis tools work on this graph so they
+// never have to walk the 2D ProteinElement grid in their inner loops.
+//--------------------------------------------------------------------
+
+class SignalingGraph
+{
+    private int nodeCount;            // number of protein nodes
+    private int edgeCount;            // number of connections
+    private int rows, cols;           // grid dimension the nodes live on
+
+    private int []     nodeRow;       // grid row of each node
+    private int []     nodeCol;       // grid column of each node
+    private String []  nodeName;      // protein name of each node
+    private boolean [] receptor;      // is node a cell surface receptor
+    private boolean [] nuclear;       // is node a nuclear protein
+
+    private int []     edgeStart;     // first outgoing edge of each node (size nodeCount+1)
+    private int []     edgeTarget;    // target node of each edge
+    private boolean [] stimulating;   // stimulating or inhibiting edge
+    private double []  edgeRate;      // reaction rate constant of each edge
+
+    private int []     inStart;       // first incoming edge of each node (built on demand)
+    private int []     inEdge;        // incoming edge indices grouped by target
+
+    private int []     nodeOfCell;    // node index of grid cell (row*cols+col), -1 if none
+
+    //------------------------------------------------------------------
+    // Create a graph directly from arrays. Edges must already be
+    // grouped by source node as described by edgeStart.
+    //------------------------------------------------------------------
+
+    public SignalingGraph(int Rows, int Cols, int [] row, int [] col, String [] name,
+                          boolean [] isReceptor, boolean [] isNuclear,
+                          int [] start, int [] target, boolean [] stim, double [] rate)
+    {
+        rows = Rows;
+        cols = Cols;
+        nodeCount = row.length;
+        edgeCount = target.length;
+
+        nodeRow  = row;
+        nodeCol  = col;
+        nodeName = name;
+        receptor = isReceptor;
+        nuclear  = isNuclear;
+
+        edgeStart   = start;
+        edgeTarget  = target;
+        stimulating = stim;
+        edgeRate    = rate;
+
+        nodeOfCell = new int [rows * cols];
+        java.util.Arrays.fill(nodeOfCell, -1);
+        for (int v = 0; v < nodeCount; v++)
+            nodeOfCell[nodeRow[v] * cols + nodeCol[v]] = v;
+    }
+
+
+    //------------------------------------------------------------------
+    // Build the graph of the protein grid. If activeOnly is set, only
+    // proteins of currently active pathways (and the connections between
+    // them) are included.
+    //------------------------------------------------------------------
+
+    public static SignalingGraph fromNetwork(ProteinElement [][] network, boolean activeOnly)
+    {
+        // collect the proteins in row major order
+        ProteinElement [] list = new ProteinElement [network.length * network[0].length];
+        int n = 0;
+        for (int row = 0; row < network.length; row++)
+        {
+            for (int col = 0; col < network[row].length; col++)
+            {
+                ProteinElement pe = network[row][col];
+                if (pe.hasProtein() && (!activeOnly || pe.getActive()))
+                    list[n++] = pe;
+            }
+        }
+        return fromProteins(network, list, n);
+    }
+
+
+    //------------------------------------------------------------------
+    // Build the graph of the first n proteins in 'list'. Only the
+    // connections between listed proteins are included.
+    //------------------------------------------------------------------
+
+    public static SignalingGraph fromProteins(ProteinElement [][] network, ProteinElement [] list, int n)
+    {
+        int rows = network.length;
+        int cols = network[0].length;
+
+        int [] index = new int [rows * cols];
+        java.util.Arrays.fill(index, -1);
+        for (int v = 0; v < n; v++)
+            index[list[v].getRow() * cols + list[v].getCol()] = v;
+
+        int []     nodeRow  = new int [n];
+        int []     nodeCol  = new int [n];
+        String []  name     = new String [n];
+        boolean [] isRec    = new boolean [n];
+        boolean [] isNuc    = new boolean [n];
+        int []     start    = new int [n + 1];
+
+        // first pass: nodes and edge counts
+        int m = 0;
+        for (int v = 0; v < n; v++)
+        {
+            ProteinElement pe = list[v];
+            nodeRow[v] = pe.getRow();
+            nodeCol[v] = pe.getCol();
+            name[v]    = pe.getName();
+            isRec[v]   = pe.getIsReceptor();
+            isNuc[v]   = pe.isNuclearProtein();
+
+            start[v] = m;
+            for (int i = 0; i < pe.getConnectionCount(); i++)
+            {
+                ConnectionElement ce = pe.getConnection(i);
+                if (index[ce.getToRow() * cols + ce.getToCol()] >= 0) m++;
+            }
+        }
+        start[n] = m;
+
+        // second pass: edges
+        int []     target = new int [m];
+        boolean [] stim   = new boolean [m];
+        double []  rate   = new double [m];
+        int e = 0;
+        for (int v = 0; v < n; v++)
+        {
+            ProteinElement pe = list[v];
+            for (int i = 0; i < pe.getConnectionCount(); i++)
+            {
+                ConnectionElement ce = pe.getConnection(i);
+                int to = index[ce.getToRow() * cols + ce.getToCol()];
+                if (to < 0) continue;
+
+                target[e] = to;
+                stim[e]   = ce.isStimulating();
+                rate[e]   = ce.getRate();
+                e++;
+            }
+        }
+
+        return new SignalingGraph(rows, cols, nodeRow, nodeCol, name, isRec, isNuc,
+                                  start, target, stim, rate);
+    }
+
+
+    public int getNodeCount() { return nodeCount; }
+    public int getEdgeCount() { return edgeCount; }
+    public int getRows()      { return rows;      }
+    public int getCols()      { return cols;      }
+
+    public int     getRow(int v)        { return nodeRow[v];  }
+    public int     getCol(int v)        { return nodeCol[v];  }
+    public String  getName(int v)       { return nodeName[v]; }
+    public boolean isReceptor(int v)    { return receptor[v]; }
+    public boolean isNuclear(int v)     { return nuclear[v];  }
+
+    // node at grid cell (row, col) or -1 if the cell has no protein in the graph
+    public int nodeAt(int row, int col) { return nodeOfCell[row * cols + col]; }
+
+    // outgoing edges of node v are firstEdge(v) .. firstEdge(v+1)-1
+    public int     firstEdge(int v)        { return edgeStart[v];   }
+    public int     getTarget(int e)        { return edgeTarget[e];  }
+    public boolean isStimulating(int e)    { return stimulating[e]; }
+    public double  getRate(int e)          { return edgeRate[e];    }
+
+
+    //------------------------------------------------------------------
+    // Incoming edges of node v are inEdge[firstInEdge(v)] ..
+    // inEdge[firstInEdge(v+1)-1]. Built on first use.
+    //------------------------------------------------------------------
+
+    public int firstInEdge(int v)
+    {
+        if (inStart == null) buildIncoming();
+        return inStart[v];
+    }
+
+    public int getInEdge(int i)
+    {
+        if (inStart == null) buildIncoming();
+        return inEdge[i];
+    }
+
+    // source node of edge e (binary search over edgeStart)
+    public int getSource(int e)
+    {
+        int lo = 0, hi = nodeCount - 1;
+        while (lo < hi)
+        {
+            int mid = (lo + hi + 1) >>> 1;
+            if (edgeStart[mid] <= e) lo = mid;
+            else                     hi = mid - 1;
+        }
+        return lo;
+    }
+
+    private void buildIncoming()
+    {
+        int [] start = new int [nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++)
+            start[edgeTarget[e] + 1]++;
+        for (int v = 0; v < nodeCount; v++)
+            start[v + 1] += start[v];
+
+        int [] fill = new int [nodeCount];
+        int [] edges = new int [edgeCount];
+        for (int v = 0; v < nodeCount; v++)
+        {
+            for (int e = edgeStart[v]; e < edgeStart[v + 1]; e++)
+            {
+                int t = edgeTarget[e];
+                edges[start[t] + fill[t]] = e;
+                fill[t]++;
+            }
+        }
+
+        inEdge  = edges;
+        inStart = start;
+    }
+
+
+    //------------------------------------------------------------------
+    // Strongly connected components (Tarjan, iterative). component[v]
+    // receives the component of node v, numbered in reverse topological
+    // order (edges only go from higher to lower or equal numbers).
+    // Returns the number of components.
+    //------------------------------------------------------------------
+
+    public int stronglyConnectedComponents(int [] component)
+    {
+        int [] order   = new int [nodeCount];   // discovery index + 1, 0 = unvisited
+        int [] low     = new int [nodeCount];
+        int [] stack   = new int [nodeCount];   // Tarjan stack
+        boolean [] onStack = new boolean [nodeCount];
+        int [] callNode = new int [nodeCount];  // explicit recursion stack
+        int [] callEdge = new int [nodeCount];
+
+        int counter = 0, top = 0, components = 0;
+
+        for (int root = 0; root < nodeCount; root++)
+        {
+            if (order[root] != 0) continue;
+
+            int depth = 0;
+            callNode[0] = root;
+            callEdge[0] = edgeStart[root];
+            order[root] = low[root] = ++counter;
+            stack[top++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0)
+            {
+                int v = callNode[depth];
+
+                if (callEdge[depth] < edgeStart[v + 1])
+                {
+                    int w = edgeTarget[callEdge[depth]++];
+                    if (order[w] == 0)
+                    {
+                        order[w] = low[w] = ++counter;
+                        stack[top++] = w;
+                        onStack[w] = true;
+                        depth++;
+                        callNode[depth] = w;
+                        callEdge[depth] = edgeStart[w];
+                    }
+                    else if (onStack[w] && order[w] < low[v])
+                    {
+                        low[v] = order[w];
+                    }
+                    continue;
+                }
+
+                // all edges of v done: pop component if v is its root
+                if (low[v] == order[v])
+                {
+                    int w;
+                    do {
+                        w = stack[--top];
+                        onStack[w] = false;
+                        component[w] = components;
+                    } while (w != v);
+                    components++;
+                }
+
+                depth--;
+                if (depth >= 0)
+                {
+                    int parent = callNode[depth];
+                    if (low[v] < low[parent]) low[parent] = low[v];
+                }
+            }
+        }
+        return components;
+    }
+}
@@ -0,0 +1,439 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/2/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.util.Random;
+
+//--------------------------------------------------------------------
+// Continuous time stochastic kinetics for the signaling network.
+// This is a research mode alternative to Pathway.stepAll
+//
+// Every protein holds a number of active molecules. Reactions are:
+//
+//   1. Stimulating connection A --> B :  B += 1, propensity k * A
+//   2. Inhibiting  connection A --| B :  B -= 1, propensity k * A * B
+//   3. Decay of non-receptor protein B:  B -= 1, propensity d * B
+//
+// Receptors are held at a constant input level. Reactions are fired
+// using the Gibson-Bruck next reaction method: the putative firing time
+// of every reaction is kept in an indexed min-heap, and after each event
+// only the reactions depending on the changed protein are updated.
+//--------------------------------------------------------------------
+
+class StochasticKinetics
+{
+    private SignalingGraph graph;    // network being simulated
+    private Random         rand;     // random numbers for firing times
+
+    private int       nodeCount;     // number of proteins
+    private int       edgeCount;     // number of connection reactions
+    private int       reactionCount; // connections + decay reactions
+
+    private int []    count;         // active molecules per protein
+    private double [] rate;          // rate constant per reaction
+    private double [] propensity;    // current propensity per reaction
+    private double [] fireTime;      // putative (absolute) firing time per reaction
+    private int []    changed;       // protein changed when reaction fires
+    private int []    delta;         // +1 or -1 change when reaction fires
+    private int []    source;        // source protein of each connection reaction
+    private boolean[] knockedOut;    // proteins removed from the network
+
+    private int []    depStart;      // reactions depending on protein v are
+    private int []    dependents;    // dependents[depStart[v] .. depStart[v+1]-1]
+
+    private int []    heap;          // indexed binary min-heap of reactions by fireTime
+    private int []    heapPos;       // position of each reaction in heap
+
+    private double    time;          // current simulation time (seconds)
+    private long      events;        // number of fired reactions
+    private long      nuclearHits;   // stimulating reactions that reached a nuclear protein
+
+    public static final int    RECEPTOR_LEVEL = 10;    // molecules held at each receptor
+    public static final double DECAY_RATE     = 0.5;   // decay rate of active proteins
+
+    public StochasticKinetics(SignalingGraph g, long seed)
+    {
+        graph = g;
+        rand  = new Random(seed);
+
+        nodeCount     = graph.getNodeCount();
+        edgeCount     = graph.getEdgeCount();
+        reactionCount = edgeCount + nodeCount;
+
+        count      = new int [nodeCount];
+        source     = new int [edgeCount];
+        knockedOut = new boolean [nodeCount];
+        rate       = new double [reactionCount];
+        propensity = new double [reactionCount];
+        fireTime   = new double [reactionCount];
+        changed    = new int [reactionCount];
+        delta      = new int [reactionCount];
+        heap       = new int [reactionCount];
+        heapPos    = new int [reactionCount];
+
+        for (int v = 0; v < nodeCount; v++)
+            for (int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+                source[e] = v;
+        
+        for (int e = 0; e < edgeCount; e++)
+        {
+            rate[e]    = graph.getRate(e);
+            changed[e] = graph.getTarget(e);
+            delta[e]   = graph.isStimulating(e) ? 1 : -1;
+        }
+        for (int v = 0; v < nodeCount; v++)
+        {
+            int r = edgeCount + v;
+            rate[r]    = graph.isReceptor(v) ? 0.0 : DECAY_RATE;
+            changed[r] = v;
+            delta[r]   = -1;
+        }
+
+        buildDependencies();
+        reset();
+    }
+
+
+    //------------------------------------------------------------------
+    // Dependency graph: for each protein, the reactions whose
+    // propensity reads its molecule count
+    //------------------------------------------------------------------
+
+    private void buildDependencies()
+    {
+        depStart = new int [nodeCount + 1];
+
+        for (int v = 0; v < nodeCount; v++)
+        {
+            for (int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+            {
+                depStart[v + 1]++;                                   // source of e
+                if (!graph.isStimulating(e)) depStart[graph.getTarget(e) + 1]++;  // target of inhibition
+            }
+            depStart[v + 1]++;                                       // own decay
+        }
+        for (int v = 0; v < nodeCount; v++)
+            depStart[v + 1] += depStart[v];
+
+        dependents = new int [depStart[nodeCount]];
+        int [] fill = new int [nodeCount];
+        for (int v = 0; v < nodeCount; v++)
+        {
+            for (int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+            {
+                dependents[depStart[v] + fill[v]++] = e;
+                if (!graph.isStimulating(e))
+                {
+                    int t = graph.getTarget(e);
+                    dependents[depStart[t] + fill[t]++] = e;
+                }
+            }
+            dependents[depStart[v] + fill[v]++] = edgeCount + v;
+        }
+    }
+
+
+    //------------------------------------------------------------------
+    // Restart the simulation: receptors at input level, all other
+    // proteins inactive, fresh firing times for all reactions
+    //------------------------------------------------------------------
+
+    public void reset()
+    {
+        time = 0.0;
+        events = 0;
+        nuclearHits = 0;
+
+        for (int v = 0; v < nodeCount; v++)
+            count[v] = graph.isReceptor(v) && !knockedOut[v] ? RECEPTOR_LEVEL : 0;
+
+        rescheduleAll();
+    }
+
+
+    //------------------------------------------------------------------
+    // Knock out protein v (or bring it back). A knocked out protein has
+    // no active molecules, and no reaction changes it. All firing times
+    // are drawn again, which is exact for the memoryless waiting times
+    //------------------------------------------------------------------
+
+    public void setKnockedOut(int v, boolean value)
+    {
+        knockedOut[v] = value;
+        if (value) count[v] = 0;
+        else if (graph.isReceptor(v)) count[v] = RECEPTOR_LEVEL;
+        rescheduleAll();
+    }
+
+    public boolean isKnockedOut(int v) { return knockedOut[v]; }
+
+    // Bring back all knocked out proteins (counts are left as they are)
+    public void clearKnockouts()
+    {
+        java.util.Arrays.fill(knockedOut, false);
+        rescheduleAll();
+    }
+
+    // Recompute all propensities and firing times and rebuild the heap
+    private void rescheduleAll()
+    {
+        for (int r = 0; r < reactionCount; r++)
+        {
+            propensity[r] = computePropensity(r);
+            fireTime[r]   = nextTime(propensity[r]);
+            heap[r]    = r;
+            heapPos[r] = r;
+        }
+        for (int i = reactionCount / 2 - 1; i >= 0; i--)
+            siftDown(i);
+    }
+
+    private double computePropensity(int r)
+    {
+        if (knockedOut[changed[r]]) return 0.0;
+
+        if (r >= edgeCount)
+            return rate[r] * count[r - edgeCount];
+
+        if (delta[r] > 0)
+            return rate[r] * count[source[r]];
+        else
+            return rate[r] * count[source[r]] * count[changed[r]];
+    }
+
+    // Absolute firing time of a reaction with propensity a
+    private double nextTime(double a)
+    {
+        if (a <= 0.0) return Double.POSITIVE_INFINITY;
+        return time - Math.log(1.0 - rand.nextDouble()) / a;
+    }
+
+
+    //------------------------------------------------------------------
+    // Fire the next reaction. Returns false if no reaction can fire
+    //------------------------------------------------------------------
+
+    public boolean step()
+    {
+        if (reactionCount == 0) return false;   // empty graph
+        
+        int r = heap[0];
+        double t = fireTime[r];
+        if (t == Double.POSITIVE_INFINITY) return false;
+
+        time = t;
+        events++;
+
+        int v = changed[r];
+        count[v] += delta[r];
+        if (r < edgeCount && delta[r] > 0 && graph.isNuclear(v))
+            nuclearHits++;
+
+        // Only reactions depending on protein v need new propensities
+        for (int i = depStart[v]; i < depStart[v + 1]; i++)
+        {
+            int d = dependents[i];
+            if (d != r) updateReaction(d);
+        }
+
+        // The fired reaction always draws a new firing time
+        propensity[r] = computePropensity(r);
+        fireTime[r]   = nextTime(propensity[r]);
+        update(heapPos[r]);
+
+        return true;
+    }
+
+    // Gibson-Bruck reuse of the unfired waiting time of reaction d
+    private void updateReaction(int d)
+    {
+        double oldA = propensity[d];
+        double newA = computePropensity(d);
+        if (newA == oldA) return;
+
+        propensity[d] = newA;
+
+        if (newA <= 0.0)
+            fireTime[d] = Double.POSITIVE_INFINITY;
+        else if (oldA <= 0.0)
+            fireTime[d] = nextTime(newA);
+        else
+            fireTime[d] = time + (oldA / newA) * (fireTime[d] - time);
+
+        update(heapPos[d]);
+    }
+
+    // Run until simulation time reaches tEnd. Returns number of events fired
+    public long run(double tEnd)
+    {
+        long start = events;
+        while (reactionCount > 0 && fireTime[heap[0]] <= tEnd)
+            step();
+        if (time < tEnd) time = tEnd;
+        return events - start;
+    }
+
+    // Fire up to n events. Returns number of events fired
+    public long runEvents(long n)
+    {
+        long start = events;
+        while (events - start < n && step()) { }
+        return events - start;
+    }
+
+
+    public double getTime()         { return time;        }
+    public long   getEventCount()   { return events;      }
+    public long   getNuclearHits()  { return nuclearHits; }
+    public int    getCount(int v)   { return count[v];    }
+
+    public SignalingGraph getGraph() { return graph; }
+
+
+    //------------------------------------------------------------------
+    // Saved simulation state. A snapshot can be restored into any
+    // simulator of the same graph, so many runs can continue (fork)
+    // from one simulated prefix
+    //------------------------------------------------------------------
+
+    static class Snapshot
+    {
+        private int []    count;
+        private boolean[] knockedOut;
+        private double    time;
+        private long      events;
+        private long      nuclearHits;
+    }
+
+    public Snapshot snapshot()
+    {
+        Snapshot s = new Snapshot();
+        s.count       = count.clone();
+        s.knockedOut  = knockedOut.clone();
+        s.time        = time;
+        s.events      = events;
+        s.nuclearHits = nuclearHits;
+        return s;
+    }
+
+    //------------------------------------------------------------------
+    // Continue from snapshot s with random seed 'seed'. Firing times
+    // are drawn fresh, so runs forked with different seeds differ
+    //------------------------------------------------------------------
+
+    public void restore(Snapshot s, long seed)
+    {
+        System.arraycopy(s.count, 0, count, 0, nodeCount);
+        System.arraycopy(s.knockedOut, 0, knockedOut, 0, nodeCount);
+        time        = s.time;
+        events      = s.events;
+        nuclearHits = s.nuclearHits;
+
+        rand.setSeed(seed);
+        rescheduleAll();
+    }
+
+    // Change the rate constant of connection e
+    public void setEdgeRate(int e, double k)
+    {
+        rate[e] = k;
+        updateReaction(e);
+    }
+
+
+    //------------------------------------------------------------------
+    // Indexed binary heap on fireTime
+    //------------------------------------------------------------------
+
+    private void update(int i)
+    {
+        if (i > 0 && fireTime[heap[i]] < fireTime[heap[(i - 1) >> 1]])
+            siftUp(i);
+        else
+            siftDown(i);
+    }
+
+    private void siftUp(int i)
+    {
+        int r = heap[i];
+        double t = fireTime[r];
+        while (i > 0)
+        {
+            int parent = (i - 1) >> 1;
+            int p = heap[parent];
+            if (fireTime[p] <= t) break;
+            heap[i] = p;
+            heapPos[p] = i;
+            i = parent;
+        }
+        heap[i] = r;
+        heapPos[r] = i;
+    }
+
+    private void siftDown(int i)
+    {
+        int r = heap[i];
+        double t = fireTime[r];
+        int n = reactionCount;
+        while (true)
+        {
+            int child = 2 * i + 1;
+            if (child >= n) break;
+            if (child + 1 < n && fireTime[heap[child + 1]] < fireTime[heap[child]]) child++;
+            int c = heap[child];
+            if (fireTime[c] >= t) break;
+            heap[i] = c;
+            heapPos[c] = i;
+            i = child;
+        }
+        heap[i] = r;
+        heapPos[r] = i;
+    }
+
+
+    //------------------------------------------------------------------
+    // Research mode run: simulate the given pathways (all if none are
+    // given) and report nuclear hit rate and event throughput
+    //
+    //   java StochasticKinetics [seconds] [pathway index ...]
+    //------------------------------------------------------------------
+
+    public static void main(String [] args)
+    {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 1000.0;
+
+        GridState grid = new GridState(30, 30);
+        ProteinElement [][] network = new ProteinElement [30][30];
+        for (int row = 0; row < network.length; row++)
+            for (int col = 0; col < network[row].length; col++)
+                network[row][col] = new ProteinElement(row, col, grid);
+
+        Pathway [] pathways = new Pathway [Pathway.NAMES.length];
+        for (int i = 0; i < pathways.length; i++)
+        {
+            pathways[i] = new Pathway(i, Pathway.NAMES[i], Pathway.NAMES[i], network, null);
+            pathways[i].deactivate();
+        }
+
+        for (int i = 1; i < args.length; i++)
+            pathways[Integer.parseInt(args[i])].activate();
+        if (args.length <= 1)
+            for (int i = 0; i < pathways.length; i++) pathways[i].activate();
+
+        SignalingGraph g = SignalingGraph.fromNetwork(network, true);
+        StochasticKinetics sim = new StochasticKinetics(g, 1);
+
+        long begin = System.nanoTime();
+        sim.run(seconds);
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+
+        System.out.println("Proteins: " + g.getNodeCount() + "  Reactions: " + sim.reactionCount);
+        System.out.println("Simulated " + seconds + " s, " + sim.getEventCount() + " events in " +
+                           String.format("%.3f", elapsed) + " s (" +
+                           String.format("%.0f", sim.getEventCount() / elapsed) + " events/s)");
+        System.out.println("Nuclear hits: " + sim.getNuclearHits() + " (" +
+                           String.format("%.3f", sim.getNuclearHits() / seconds) + " per second)");
+    }
+}
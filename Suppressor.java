@@ -15,17 +15,31 @@ class Suppressor
 {
     public Location loc;           // suppressor location
     ProteinElement [][] network;   // Reference to Signaling network in CellPanel
-    ScorePanel score;              // Reference to Score Panel
+    ScoreKeeper score;             // Reference to Score Panel
     
     public ProteinElement protein; // ProteinElement where the suppressor is
     
-    public Suppressor(int row, int col, ProteinElement [][] ntk, ScorePanel scorePanel)
+    // Move directions used by autopilot and other controllers
+    public static final int NONE  = 0;
+    public static final int UP    = 1;
+    public static final int DOWN  = 2;
+    public static final int LEFT  = 3;
+    public static final int RIGHT = 4;
+    
+    // Start locations of the 4 suppressors on 4 corners of nucleus
+    public static final int [] START_ROW = { 12, 12, 18, 18 };
+    public static final int [] START_COL = {  6, 23,  6, 23 };
+    
+    public Suppressor(int row, int col, ProteinElement [][] ntk, ScoreKeeper scorePanel)
     {
         loc = new Location(row, col);
         network = ntk;
         score = scorePanel;
     }
     
+    public int getRow() { return loc.getRow(); }
+    public int getCol() { return loc.getCol(); }
+    
     // Set suppressor signal at (row, col)
     public void set(int row, int col)
     {
@@ -55,7 +69,7 @@ class Suppressor
         ProteinElement pe = network[row][col]; 
         
         if (pe.hasOncogenicSignal())
-            score.recordWin();
+            score.recordWin(pe.getSignalOrigin());
     }
     
     // Move up, guard against restricted zone
@@ -107,5 +121,17 @@ class Suppressor
         setSuppressorSignal(true); 
         updateScore();
     }
+    
+    // Move in direction 'dir' (NONE, UP, DOWN, LEFT or RIGHT)
+    public void move(int dir)
+    {
+        switch (dir)
+        {
+            case UP:    moveUp();    break;
+            case DOWN:  moveDown();  break;
+            case LEFT:  moveLeft();  break;
+            case RIGHT: moveRight(); break;
+            default:    break;
+        }
+    }
 }
-  
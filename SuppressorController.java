@@ -0,0 +1,33 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/22/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Service interface for third party suppressor controllers.
+//
+// Controllers are found with java.util.ServiceLoader, so a jar only
+// has to list its implementation in
+//   META-INF/services/SuppressorController
+// and be on the class path. Each controller needs a public no argument
+// constructor.
+//
+// Once per suppressor tick, move() is called for every suppressor the
+// controller drives; the answer is applied on the next tick. It must
+// return within the budget of the ControllerHost, or the suppressor does
+// not move. A call still running at the next tick is interrupted.
+// Calls for different suppressors may run concurrently.
+//--------------------------------------------------------------------
+
+interface SuppressorController
+{
+    // Name shown in the Controller menu
+    String getName();
+
+    //------------------------------------------------------------------
+    // Move for suppressor 'index' on the given grid: one of
+    // Suppressor.NONE, UP, DOWN, LEFT or RIGHT
+    //------------------------------------------------------------------
+    int move(GridView view, int index);
+}
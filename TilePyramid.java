@@ -0,0 +1,160 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 7/11/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.awt.*;
+
+//--------------------------------------------------------------------
+// Protein and signal counts of a grid, summed over square tiles of
+// 1, 2, 4, 8, ... cells a side (level 0, 1, 2, 3, ...).
+//
+// When a protein grid is zoomed far out a cell is only a pixel or two,
+// so instead of drawing every protein the panel draws one tile per few
+// pixels, shaded by protein density and heated by the share of its
+// proteins carrying an oncogenic signal.
+//
+// The counts are kept up to date as signals move: a signal appearing
+// or leaving a cell adds +1/-1 to the one tile that holds the cell on
+// every level, O(levels) per change. Nothing is recomputed when drawn.
+// Signal counts are stamped with an epoch like the grid's cells, so
+// clearing all signals for a new game is O(1) as well.
+//--------------------------------------------------------------------
+
+class TilePyramid
+{
+    private int levels;
+    private int [] tileRows, tileCols;     // tiles per level
+    private int [][] proteins;             // proteins[level][tr * tileCols[level] + tc]
+    private int [][] signals;              // cells with an oncogenic signal, same layout
+    private int [][] signalEpoch;          // epoch each signal count was written in
+    private int      epoch;
+
+    public static final int TILE_PIXELS = 6;    // smallest tile drawn, in pixels
+
+    private static final int SHADES = 16;
+    private static final Color [] PALETTE = new Color [SHADES * SHADES];  // [density * SHADES + heat]
+
+    static
+    {
+        for (int d = 0; d < SHADES; d++)
+        {
+            for (int h = 0; h < SHADES; h++)
+            {
+                float fd = (d + 1) / (float) SHADES, fh = h / (float) (SHADES - 1);
+
+                // dark to bright green by density, towards orange by heat
+                float green = 0.15f + 0.85f * fd;
+                PALETTE[d * SHADES + h] = new Color(fh, green + (0.55f - green) * fh, 0.0f);
+            }
+        }
+    }
+
+    public TilePyramid(int rows, int cols)
+    {
+        levels = 1;
+        while ((1 << (levels - 1)) < Math.max(rows, cols)) levels++;
+
+        tileRows = new int [levels];
+        tileCols = new int [levels];
+        proteins = new int [levels][];
+        signals  = new int [levels][];
+        signalEpoch = new int [levels][];
+        for (int l = 0; l < levels; l++)
+        {
+            tileRows[l] = (rows + (1 << l) - 1) >> l;
+            tileCols[l] = (cols + (1 << l) - 1) >> l;
+            proteins[l] = new int [tileRows[l] * tileCols[l]];
+            signals[l]  = new int [tileRows[l] * tileCols[l]];
+            signalEpoch[l] = new int [tileRows[l] * tileCols[l]];
+        }
+    }
+
+    public int getLevels()                { return levels; }
+    public int getTileRows(int level)     { return tileRows[level]; }
+    public int getTileCols(int level)     { return tileCols[level]; }
+
+    public int getProteins(int level, int tileRow, int tileCol)
+    {
+        return proteins[level][tileRow * tileCols[level] + tileCol];
+    }
+
+    public int getSignals(int level, int tileRow, int tileCol)
+    {
+        return signalCount(level, tileRow * tileCols[level] + tileCol);
+    }
+
+    private int signalCount(int level, int t)
+    {
+        return signalEpoch[level][t] == epoch ? signals[level][t] : 0;
+    }
+
+    // A protein was placed on cell (row, col)
+    public void addProtein(int row, int col) { add(proteins, row, col, 1); }
+
+    // An oncogenic signal appeared on (+1) or left (-1) cell (row, col)
+    public void addSignal(int row, int col, int delta)
+    {
+        for (int l = 0; l < levels; l++)
+        {
+            int t = (row >> l) * tileCols[l] + (col >> l);
+            signals[l][t] = signalCount(l, t) + delta;
+            signalEpoch[l][t] = epoch;
+        }
+    }
+
+    // All signals are gone (new game)
+    public void clearSignals() { epoch++; }
+
+    private void add(int [][] counts, int row, int col, int delta)
+    {
+        for (int l = 0; l < levels; l++)
+            counts[l][(row >> l) * tileCols[l] + (col >> l)] += delta;
+    }
+
+
+    //------------------------------------------------------------------
+    // Coarsest useful level for cells of xStep x yStep pixels: the
+    // first whose tiles are at least TILE_PIXELS on the short side
+    //------------------------------------------------------------------
+
+    public int levelFor(int xStep, int yStep)
+    {
+        int step = Math.max(1, Math.min(xStep, yStep));
+        int l = 0;
+        while (l < levels - 1 && (step << l) < TILE_PIXELS) l++;
+        return l;
+    }
+
+
+    //------------------------------------------------------------------
+    // Draw the tiles of 'level' covering cells (row0..row1, col0..col1)
+    // in cell coordinates (cell (r, c) at xStep*c, yStep*r). Empty
+    // tiles are left as background.
+    //------------------------------------------------------------------
+
+    public void draw(Graphics g, int level, int xStep, int yStep, int row0, int col0, int row1, int col1)
+    {
+        int side = 1 << level;
+        int area = side * side;
+        int tr1  = Math.min(tileRows[level] - 1, row1 >> level);
+        int tc1  = Math.min(tileCols[level] - 1, col1 >> level);
+
+        for (int tr = Math.max(0, row0 >> level); tr <= tr1; tr++)
+        {
+            for (int tc = Math.max(0, col0 >> level); tc <= tc1; tc++)
+            {
+                int t = tr * tileCols[level] + tc;
+                int p = proteins[level][t];
+                if (p == 0) continue;
+
+                int d = Math.min(SHADES - 1, p * SHADES / area);
+                int h = Math.min(SHADES - 1, signalCount(level, t) * (SHADES - 1) / p);
+
+                g.setColor(PALETTE[d * SHADES + h]);
+                g.fillRect(xStep * (tc << level), yStep * (tr << level), xStep * side, yStep * side);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/6/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Timed signaling mode. Instead of moving every signal one hop on a
+// global 4000 ms tick, each connection has its own delay and signal
+// arrivals are scheduled in a TimingWheel. Only the events that are
+// due are processed on each clock tick.
+//
+// Event kinds:
+//   EMIT   - receptor sends a new wave along its connections
+//   ARRIVE - signal reaches the protein at 'cell', 'data' is its origin
+//   CLEAR  - signal has left the protein at 'cell'
+//--------------------------------------------------------------------
+
+class TimedSignaling implements TimingWheel.Handler
+{
+    private ProteinElement [][] network;   // reference to Signaling network in CellPanel
+    private ScoreKeeper         score;     // reference to Score Panel
+    private TimingWheel         wheel;     // scheduled signal events
+    private int []              arrivals;  // arrival count per cell (to match CLEAR events)
+    private int                 cols;      // grid width for cell numbering
+
+    public static final int TICK_MS     = 50;    // clock resolution
+    public static final int EMIT_PERIOD = 4000;  // receptor re-emission period (ms)
+
+    private static final int EMIT   = 0;
+    private static final int ARRIVE = 1;
+    private static final int CLEAR  = 2;
+
+    public TimedSignaling(ProteinElement [][] ntk, ScoreKeeper theScore)
+    {
+        network = ntk;
+        score   = theScore;
+        cols    = network[0].length;
+        arrivals = new int [network.length * cols];
+        wheel   = new TimingWheel(1024);
+    }
+
+    // Number of clock ticks for a delay in milliseconds
+    private static int ticks(int ms)
+    {
+        return Math.max(1, (ms + TICK_MS / 2) / TICK_MS);
+    }
+
+
+    //------------------------------------------------------------------
+    // Start emitting from the receptors of the active pathways
+    //------------------------------------------------------------------
+
+    public void start(Pathway [] pathways)
+    {
+        for (int p = 0; p < pathways.length; p++)
+        {
+            if (!pathways[p].isActive()) continue;
+
+            for (int i = 0; i < pathways[p].getReceptorCount(); i++)
+            {
+                ProteinElement r = pathways[p].getReceptor(i);
+                if (r != null)
+                    wheel.schedule(1, r.getRow() * cols + r.getCol(), EMIT, 0);
+            }
+        }
+    }
+
+    // Drop all in-flight signals. Arrival counts are kept: a CLEAR
+    // event only compares against counts of its own cell, and none
+    // of the old events survive
+    public void reset()
+    {
+        wheel.clear();
+    }
+
+    // Advance one clock tick. Returns number of processed events
+    public int advance()
+    {
+        return wheel.advance(this);
+    }
+
+    public int getInFlight() { return wheel.size(); }
+
+
+    //------------------------------------------------------------------
+    // Handle an expired event
+    //------------------------------------------------------------------
+
+    public void expire(int cell, int kind, int data)
+    {
+        ProteinElement pe = network[cell / cols][cell % cols];
+
+        switch (kind)
+        {
+            case EMIT:
+                if (!pe.getActive()) return;      // pathway was deactivated
+                depart(pe);
+                wheel.schedule(ticks(EMIT_PERIOD), cell, EMIT, 0);
+                break;
+
+            case ARRIVE:
+                // a signal arriving at a lit protein merges with it
+                boolean merged = pe.hasOncogenicSignal();
+                if (!pe.receiveOnco(score, data) || merged) return;
+
+                arrivals[cell]++;
+                int dwell = depart(pe);
+                wheel.schedule(ticks(dwell), cell, CLEAR, arrivals[cell]);
+                break;
+
+            case CLEAR:
+                // only clear if no newer signal arrived in the meantime
+                if (data == arrivals[cell] && !pe.getIsReceptor())
+                    pe.setOncogenicSignal(false);
+                break;
+        }
+    }
+
+    //------------------------------------------------------------------
+    // Send signal from pe along all its connections. Returns the
+    // longest connection delay (how long pe stays lit)
+    //------------------------------------------------------------------
+
+    private int depart(ProteinElement pe)
+    {
+        int longest = ConnectionElement.DEFAULT_DELAY;
+        int n = pe.getConnectionCount();
+        if (n > 0) longest = 0;
+
+        for (int i = 0; i < n; i++)
+        {
+            ConnectionElement ce = pe.getConnection(i);
+            int delay = ce.getDelay();
+            wheel.schedule(ticks(delay), ce.getToRow() * cols + ce.getToCol(), ARRIVE, pe.getSignalOrigin());
+            if (delay > longest) longest = delay;
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,195 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/6/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+//--------------------------------------------------------------------
+// Hierarchical timing wheel for scheduled signal events.
+//
+// Time advances in whole ticks. There are LEVELS wheels of SLOTS slots.
+// Level 0 holds events due within the current 64 tick window, level 1
+// events due within the current 64*64 tick window, and so on. When the
+// lower wheel wraps, the matching slot of the next wheel is cascaded
+// down. Insert and expire are O(1) per event.
+//
+// Events are kept in pooled int arrays (linked lists threaded through
+// 'next'), so scheduling millions of in-flight signals creates no objects.
+//--------------------------------------------------------------------
+
+class TimingWheel
+{
+    //---------------------------------------------------------
+    // Receives expired events from advance()
+    //---------------------------------------------------------
+    interface Handler
+    {
+        void expire(int cell, int kind, int data);
+    }
+
+    private static final int BITS   = 6;
+    private static final int SLOTS  = 1 << BITS;   // 64 slots per level
+    private static final int MASK   = SLOTS - 1;
+    private static final int LEVELS = 4;           // 2^24 ticks of range
+
+    private int []  head;     // first event of each slot (LEVELS * SLOTS), -1 if empty
+    private long    now;      // current tick
+    private int     size;     // number of scheduled events
+
+    // Event pool
+    private int []  next;     // next event in slot list or free list
+    private long [] due;      // tick at which the event expires
+    private int []  cell;     // event payload: grid cell
+    private int []  kind;     // event payload: event type
+    private int []  data;     // event payload: extra data
+    private int     free;     // first free event, -1 if pool is full
+
+    public TimingWheel(int capacity)
+    {
+        head = new int [LEVELS * SLOTS];
+        java.util.Arrays.fill(head, -1);
+
+        next = new int [0];
+        due  = new long [0];
+        cell = new int [0];
+        kind = new int [0];
+        data = new int [0];
+        free = -1;
+        grow(Math.max(capacity, 16));
+    }
+
+    public long getTick() { return now;  }
+    public int  size()    { return size; }
+
+    // Enlarge the event pool and thread new events on the free list
+    private void grow(int capacity)
+    {
+        int old = next.length;
+        next = java.util.Arrays.copyOf(next, capacity);
+        due  = java.util.Arrays.copyOf(due,  capacity);
+        cell = java.util.Arrays.copyOf(cell, capacity);
+        kind = java.util.Arrays.copyOf(kind, capacity);
+        data = java.util.Arrays.copyOf(data, capacity);
+
+        for (int i = capacity - 1; i >= old; i--)
+        {
+            next[i] = free;
+            free = i;
+        }
+    }
+
+
+    //------------------------------------------------------------------
+    // Schedule an event 'delay' ticks from now (at least one tick)
+    //------------------------------------------------------------------
+
+    public void schedule(int delay, int Cell, int Kind, int Data)
+    {
+        if (free < 0) grow(next.length * 2);
+
+        int id = free;
+        free = next[id];
+
+        due[id]  = now + Math.max(1, delay);
+        cell[id] = Cell;
+        kind[id] = Kind;
+        data[id] = Data;
+        size++;
+
+        place(id);
+    }
+
+    // Put event id into the slot of the lowest level that can hold it
+    private void place(int id)
+    {
+        long t = due[id];
+        int level = 0;
+        while (level < LEVELS - 1 && (t >>> (BITS * (level + 1))) != (now >>> (BITS * (level + 1))))
+            level++;
+
+        // beyond the range of the top wheel: park in the farthest slot
+        if ((t >>> (BITS * LEVELS)) != (now >>> (BITS * LEVELS)))
+            t = now + ((long) SLOTS << (BITS * (LEVELS - 1))) - 1;
+
+        int slot = level * SLOTS + (int) ((t >>> (BITS * level)) & MASK);
+        next[id] = head[slot];
+        head[slot] = id;
+    }
+
+
+    //------------------------------------------------------------------
+    // Advance one tick and hand every event due at the new tick to the
+    // handler. Returns number of expired events.
+    //------------------------------------------------------------------
+
+    public int advance(Handler handler)
+    {
+        now++;
+
+        // cascade upper wheels whose lower wheels wrapped
+        for (int level = 1; level < LEVELS; level++)
+        {
+            if ((now & ((1L << (BITS * level)) - 1)) != 0) break;
+            cascade(level);
+        }
+
+        int slot = (int) (now & MASK);
+        int id = head[slot];
+        head[slot] = -1;
+
+        int expired = 0;
+        while (id >= 0)
+        {
+            int following = next[id];
+
+            if (due[id] > now)
+            {
+                place(id);    // parked event that is still in the future
+            }
+            else
+            {
+                int c = cell[id], k = kind[id], d = data[id];
+                next[id] = free;
+                free = id;
+                size--;
+                expired++;
+                handler.expire(c, k, d);  // handler may schedule new events
+            }
+            id = following;
+        }
+        return expired;
+    }
+
+    // Re-place the events of the current slot of 'level' into lower levels
+    private void cascade(int level)
+    {
+        int slot = level * SLOTS + (int) ((now >>> (BITS * level)) & MASK);
+        int id = head[slot];
+        head[slot] = -1;
+
+        while (id >= 0)
+        {
+            int following = next[id];
+            place(id);
+            id = following;
+        }
+    }
+
+    // Drop all scheduled events
+    public void clear()
+    {
+        for (int slot = 0; slot < head.length; slot++)
+        {
+            int id = head[slot];
+            while (id >= 0)
+            {
+                int following = next[id];
+                next[id] = free;
+                free = id;
+                id = following;
+            }
+            head[slot] = -1;
+        }
+        size = 0;
+    }
+}
@@ -0,0 +1,307 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/24/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.io.*;
+import java.util.Random;
+import java.util.ServiceLoader;
+import java.util.concurrent.ForkJoinPool;
+
+//--------------------------------------------------------------------
+// Headless tournament of suppressor strategies.
+//
+// Every strategy plays the same games: every level 1..6, every pathway
+// preference set and every seed. Games are split into tasks on a
+// work-stealing ForkJoinPool using all cores; each worker thread keeps
+// its own HeadlessGame. Every finished game is streamed as one CSV row,
+// and kills, damages and score (theScore of ScorePanel) are aggregated
+// per strategy and level with 95% confidence intervals.
+//
+//   java -Djava.awt.headless=true Tournament [options]
+//     -strategies idle,random,autopilot   strategies (plug-in controllers by name)
+//     -prefs none,GPCR,RAS+Wnt            pathway preference sets
+//     -seeds 1000                         seeds per level and preference set
+//     -steps 30                           signal steps per game
+//     -out tournament.csv                 CSV file of all games
+//--------------------------------------------------------------------
+
+class Tournament
+{
+    //------------------------------------------------------------------
+    // A way of moving the suppressors of a HeadlessGame
+    //------------------------------------------------------------------
+
+    interface Strategy
+    {
+        void reset(HeadlessGame game, long seed);
+        void plan(HeadlessGame game, int [] moves);
+    }
+
+    // Never move
+    static class IdleStrategy implements Strategy
+    {
+        public void reset(HeadlessGame game, long seed) { }
+        public void plan(HeadlessGame game, int [] moves)
+        {
+            java.util.Arrays.fill(moves, Suppressor.NONE);
+        }
+    }
+
+    // Random moves
+    static class RandomStrategy implements Strategy
+    {
+        private Random rand = new Random();
+
+        public void reset(HeadlessGame game, long seed) { rand.setSeed(seed); }
+        public void plan(HeadlessGame game, int [] moves)
+        {
+            for (int i = 0; i < moves.length; i++) moves[i] = rand.nextInt(5);
+        }
+    }
+
+    // Autopilot on all suppressors
+    static class AutopilotStrategy implements Strategy
+    {
+        private Autopilot pilot;
+
+        public void reset(HeadlessGame game, long seed)
+        {
+            if (pilot != null) return;
+            pilot = new Autopilot(game.getNetwork(), game.getDistances(), game.getSuppressors());
+            for (int i = 0; i < HeadlessGame.NUM_SUPPRESSORS; i++) pilot.setEnabled(i, true);
+        }
+        public void plan(HeadlessGame game, int [] moves) { pilot.plan(moves); }
+    }
+
+    // Plug-in SuppressorController on all suppressors (no time budget)
+    static class ControllerStrategy implements Strategy
+    {
+        private SuppressorController controller;
+        private GridView view;
+        private int tick;
+
+        ControllerStrategy(SuppressorController c) { controller = c; }
+
+        public void reset(HeadlessGame game, long seed)
+        {
+            if (view == null) view = new GridView(game.getNetwork(), game.getSuppressors(), game.getDistances());
+            tick = 0;
+        }
+        public void plan(HeadlessGame game, int [] moves)
+        {
+            view.update(++tick);
+            for (int i = 0; i < moves.length; i++) moves[i] = controller.move(view, i);
+        }
+    }
+
+    // New strategy by name, null if there is none
+    static Strategy createStrategy(String name)
+    {
+        if (name.equals("idle"))      return new IdleStrategy();
+        if (name.equals("random"))    return new RandomStrategy();
+        if (name.equals("autopilot")) return new AutopilotStrategy();
+
+        for (SuppressorController c : ServiceLoader.load(SuppressorController.class))
+            if (c.getName().equals(name)) return new ControllerStrategy(c);
+        return null;
+    }
+
+
+    //------------------------------------------------------------------
+    // Running sums of one value for mean and confidence interval
+    //------------------------------------------------------------------
+
+    static class Summary
+    {
+        long   n;
+        double sum, sumSq;
+
+        void add(double x)       { n++; sum += x; sumSq += x * x; }
+        void add(Summary other)  { n += other.n; sum += other.sum; sumSq += other.sumSq; }
+
+        double mean() { return n == 0 ? 0 : sum / n; }
+
+        // half width of the 95% confidence interval of the mean
+        double halfWidth()
+        {
+            if (n < 2) return 0;
+            double var = (sumSq - sum * sum / n) / (n - 1);
+            return 1.96 * Math.sqrt(Math.max(var, 0) / n);
+        }
+
+        public String toString()
+        {
+            return String.format("%8.2f +- %-6.2f", mean(), halfWidth());
+        }
+    }
+
+
+    //------------------------------------------------------------------
+    // Tournament setup and results
+    //------------------------------------------------------------------
+
+    private String []     strategies;     // strategy names
+    private String []     prefNames;      // preference set names
+    private boolean [][]  prefs;          // preference sets
+    private int           seeds;          // seeds per level and preference set
+    private int           steps;          // signal steps per game
+    private PrintWriter   csv;            // streamed results
+
+    private Summary [][][] results;       // [strategy][level][kills, damages, score]
+
+    private static final int GAMES_PER_TASK = 16;   // games one worker plays in a row
+
+    // One worker thread's game and strategies
+    private final ThreadLocal<Player> players = ThreadLocal.withInitial(() -> new Player());
+
+    class Player
+    {
+        HeadlessGame game = new HeadlessGame();
+        Strategy []  strategy = new Strategy [strategies.length];
+        int []       moves = new int [HeadlessGame.NUM_SUPPRESSORS];
+
+        Player()
+        {
+            for (int s = 0; s < strategies.length; s++)
+                strategy[s] = createStrategy(strategies[s]);
+        }
+    }
+
+    public Tournament(String [] strategyNames, String [] prefSets, int numSeeds, int numSteps, PrintWriter out)
+    {
+        strategies = strategyNames;
+        prefNames  = prefSets;
+        seeds      = numSeeds;
+        steps      = numSteps;
+        csv        = out;
+
+        prefs = new boolean [prefSets.length][Pathway.NAMES.length];
+        for (int p = 0; p < prefSets.length; p++)
+        {
+            for (String name : prefSets[p].split("\\+"))
+            {
+                for (int i = 0; i < Pathway.NAMES.length; i++)
+                    if (Pathway.NAMES[i].equalsIgnoreCase(name)) prefs[p][i] = true;
+            }
+        }
+
+        results = new Summary [strategies.length][ScorePanel.MAX_LEVEL + 1][3];
+        for (Summary [][] s : results)
+            for (Summary [] l : s)
+                for (int k = 0; k < 3; k++) l[k] = new Summary();
+    }
+
+
+    //------------------------------------------------------------------
+    // Play all games: one task per (strategy, level, preference set)
+    // over all seeds, split further while large
+    //------------------------------------------------------------------
+
+    public void run(ForkJoinPool pool)
+    {
+        csv.println("strategy,level,preference,seed,kills,damages,score");
+
+        int blocks = strategies.length * ScorePanel.MAX_LEVEL * prefs.length;
+        BatchRunner.run(pool, 0, (long) blocks * seeds, GAMES_PER_TASK, this::play);
+        csv.flush();
+    }
+
+    // Play game number g: seed fastest, then preference set, level, strategy
+    private void play(long g)
+    {
+        int  seed = (int) (g % seeds);            g /= seeds;
+        int  p    = (int) (g % prefs.length);     g /= prefs.length;
+        int  level = (int) (g % ScorePanel.MAX_LEVEL) + 1;
+        int  s    = (int) (g / ScorePanel.MAX_LEVEL);
+
+        Player player = players.get();
+        HeadlessGame game = player.game;
+        Strategy strategy = player.strategy[s];
+
+        for (int i = 0; i < Pathway.NAMES.length; i++)
+            game.setPathwaysPreference(i, prefs[p][i]);
+        game.reset(level, seed);
+        strategy.reset(game, seed);
+
+        for (int k = 0; k < steps * game.getMovesPerStep(); k++)
+        {
+            strategy.plan(game, player.moves);
+            game.tick(player.moves);
+        }
+
+        String row = strategies[s] + "," + level + "," + prefNames[p] + "," + seed + "," +
+                     game.getKills() + "," + game.getDamages() + "," + game.getScore();
+
+        synchronized (this)
+        {
+            csv.println(row);
+            Summary [] r = results[s][level];
+            r[0].add(game.getKills());
+            r[1].add(game.getDamages());
+            r[2].add(game.getScore());
+        }
+    }
+
+    // Ranked table of average score per strategy and level
+    public void report(PrintStream out)
+    {
+        for (int level = 1; level <= ScorePanel.MAX_LEVEL; level++)
+        {
+            out.println("Level " + level + ":");
+
+            Integer [] order = new Integer [strategies.length];
+            for (int s = 0; s < order.length; s++) order[s] = s;
+            final int l = level;
+            java.util.Arrays.sort(order, (a, b) -> Double.compare(results[b][l][2].mean(), results[a][l][2].mean()));
+
+            for (int s : order)
+            {
+                Summary [] r = results[s][level];
+                out.println(String.format("  %-12s score %s  kills %s  damages %s  (%d games)",
+                                          strategies[s], r[2], r[0], r[1], r[2].n));
+            }
+        }
+    }
+
+
+    public static void main(String [] args) throws IOException
+    {
+        String strategyList = "idle,random,autopilot";
+        String prefList     = "none";
+        int    seeds        = 1000;
+        int    steps        = 30;
+        String outName      = "tournament.csv";
+
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+                 if (args[i].equals("-strategies")) strategyList = args[i + 1];
+            else if (args[i].equals("-prefs"))      prefList     = args[i + 1];
+            else if (args[i].equals("-seeds"))      seeds        = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("-steps"))      steps        = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("-out"))        outName      = args[i + 1];
+        }
+
+        String [] names = strategyList.split(",");
+        for (String name : names)
+        {
+            if (createStrategy(name) == null)
+            {
+                System.out.println("Unknown strategy: " + name);
+                return;
+            }
+        }
+
+        PrintWriter csv = new PrintWriter(new BufferedWriter(new FileWriter(outName)));
+        Tournament t = new Tournament(names, prefList.split(","), seeds, steps, csv);
+
+        long begin = System.nanoTime();
+        t.run(ForkJoinPool.commonPool());
+        csv.close();
+
+        t.report(System.out);
+        System.out.println(String.format("Done in %.1f s, games written to %s",
+                                         (System.nanoTime() - begin) / 1e9, outName));
+    }
+}
@@ -26,14 +26,18 @@ public class Utilities {
     "The purpose of the game is to use four (4) supplied suppressor proteins to kill " +
     "oncogenic signals (originating at receptors) before they reach nucleus " +
     "and cause DNA Damage. Each kill is awarded two (2) points while a DNA damage by " +
-    "an oncogenic signal results in one (1) point loss. The game begins when user " +
+    "an oncogenic signal results in one (1) point loss. A kill is scored both when a " +
+    "suppressor moves onto a signal and when a signal moves onto a suppressor. The game begins when user " +
     "presses 'Play' button.\n\n" +
            
     "The four suppressors are controlled by 4 sets of four keys: " +
     "The suppressor in lower right region is controlled by four arrow keys. " +
     "The suppressor in upper right region is controlled by '7' (Left), '8' (Down), '9' (Up) and '0' (Right) keys. " +
     "The suppressor in upper left  region is controlled by '1' (Left), '2' (Down), '3' (Up) and '4' (Right) keys. " +
-    "The suppressor in lower left  region is controlled by 'a' (Left), 's' (Down), 'w' (Up) and 'd' (Right) keys. \n\n" +
+    "The suppressor in lower left  region is controlled by 'a' (Left), 's' (Down), 'w' (Up) and 'd' (Right) keys. " +
+    "A suppressor can also be clicked and then sent to another cell with a second click; it walks there one cell at a time. " +
+    "Plug-in controllers found on the class path can drive any suppressor from the Controller menu. " +
+    "The mouse wheel zooms the cell, dragging with the right mouse button pans it and 'Home' shows the whole cell again. \n\n" +
            
     "The game supports 6 different levels corresponding to increasing order of difficulty. "  +
     "Each level corresponds to number of pathways simulated for that level. For example at "  +
@@ -141,6 +145,12 @@ public class Utilities {
        helpFrame.setVisible(true);  
    }
    
+   // Is cell (row, col) in the suppressor restricted zone (see Location)?
+   public static boolean inRestrictedZone(int row, int col)
+   {
+       return new Location(row, col).inRestrictedZone();
+   }
+   
 }
 
 // Simple location class to keep track of (row, col) locations
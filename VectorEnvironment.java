@@ -0,0 +1,196 @@
+//------------------------------------------------------------------
+// Author: Pranav Srinivas, MVHS,   Date: 6/20/2013
+//------------------------------------------------------------------
+
+// package signalstorm;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+//--------------------------------------------------------------------
+// N GameEnvironments stepped together by a fixed set of worker threads.
+//
+// step(actions) applies actions[e * AGENTS + i] to suppressor i of
+// environment e and fills the shared output arrays:
+//
+//   planes   observation bitplanes, PLANES * WORDS longs per environment
+//   agents   suppressor cells, AGENTS ints per environment
+//   rewards  reward of each environment
+//   dones    set if the environment finished an episode in this step;
+//            it is then reset right away with the next seed, and its
+//            observation is the first one of the new episode
+//
+// Environment e is always stepped by the same thread. The workers
+// wait for a new round on a volatile counter: they spin briefly, then
+// park until step() unparks them, so idle workers cost nothing while
+// the learner is busy elsewhere and a step allocates nothing. The
+// caller waits for the round the same way; the worker finishing last
+// unparks it. If an environment throws, its worker still finishes the
+// round and step() rethrows the error.
+//--------------------------------------------------------------------
+
+class VectorEnvironment
+{
+    private GameEnvironment [] envs;
+    private long [] seeds;           // next episode seed of each environment
+
+    private long []    planes;       // observations of all environments
+    private int []     agents;
+    private int []     rewards;
+    private boolean [] dones;
+
+    private int [] actions;          // actions of the current round
+
+    private Thread [] workers;
+    private int threads;             // worker threads + calling thread
+    private volatile int round;      // incremented to start a round
+    private volatile boolean closed;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile Thread caller;  // thread waiting in step()
+
+    private static final int SPINS = 1 << 10;   // spins before parking
+
+    public VectorEnvironment(int count, int gameLevel, int ticks, int numThreads)
+    {
+        envs  = new GameEnvironment [count];
+        seeds = new long [count];
+        for (int e = 0; e < count; e++)
+            envs[e] = new GameEnvironment(gameLevel, ticks);
+
+        planes  = new long [count * GameEnvironment.PLANES * GameEnvironment.WORDS];
+        agents  = new int [count * GameEnvironment.AGENTS];
+        rewards = new int [count];
+        dones   = new boolean [count];
+
+        threads = Math.max(1, Math.min(numThreads, count));
+        workers = new Thread [threads - 1];
+        for (int t = 1; t < threads; t++)
+        {
+            final int slice = t;
+            workers[t - 1] = new Thread(() -> work(slice), "env-worker-" + t);
+            workers[t - 1].setDaemon(true);
+            workers[t - 1].start();
+        }
+    }
+
+    public int size()                  { return envs.length; }
+    public GameEnvironment get(int e)  { return envs[e];     }
+
+    public long []    getPlanes()  { return planes;  }
+    public int []     getAgents()  { return agents;  }
+    public int []     getRewards() { return rewards; }
+    public boolean [] getDones()   { return dones;   }
+
+
+    //------------------------------------------------------------------
+    // Reset environment e with seed 'seed + e'. Later episodes of e use
+    // the following seeds 'seed + e + k * size()'
+    //------------------------------------------------------------------
+
+    public void reset(long seed)
+    {
+        for (int e = 0; e < envs.length; e++)
+        {
+            seeds[e] = seed + e;
+            resetOne(e);
+            dones[e] = false;
+            rewards[e] = 0;
+        }
+    }
+
+    private void resetOne(int e)
+    {
+        envs[e].reset(seeds[e]);
+        seeds[e] += envs.length;
+        envs[e].copyObservation(planes, e * GameEnvironment.PLANES * GameEnvironment.WORDS,
+                                agents, e * GameEnvironment.AGENTS);
+    }
+
+
+    //------------------------------------------------------------------
+    // Step all environments once. Returns when all are done
+    //------------------------------------------------------------------
+
+    public void step(int [] allActions)
+    {
+        actions = allActions;
+        caller  = Thread.currentThread();
+        pending.set(threads);
+        round++;
+        for (Thread w : workers) LockSupport.unpark(w);
+
+        runSlice(0);
+
+        int spins = 0;
+        while (pending.get() != 0)
+        {
+            if (++spins < SPINS) Thread.onSpinWait();
+            else                 LockSupport.park(this);
+        }
+
+        Throwable t = failure.getAndSet(null);
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        if (t instanceof Error)            throw (Error) t;
+        if (t != null)                     throw new RuntimeException(t);
+    }
+
+    // Stop the worker threads
+    public void close()
+    {
+        closed = true;
+        for (Thread w : workers) LockSupport.unpark(w);
+    }
+
+    private void work(int slice)
+    {
+        int seen = 0;
+        while (true)
+        {
+            int spins = 0;
+            while (round == seen && !closed)
+            {
+                if (++spins < SPINS) Thread.onSpinWait();
+                else                 LockSupport.park(this);
+            }
+            if (closed) return;
+
+            seen++;
+            runSlice(slice);
+        }
+    }
+
+    // Step a slice and count it done even if an environment throws
+    private void runSlice(int slice)
+    {
+        try
+        {
+            stepSlice(slice);
+        }
+        catch (Throwable t)
+        {
+            failure.compareAndSet(null, t);
+        }
+        finally
+        {
+            if (pending.decrementAndGet() == 0) LockSupport.unpark(caller);
+        }
+    }
+
+    // Environments slice, slice + threads, slice + 2 * threads, ...
+    private void stepSlice(int slice)
+    {
+        int a = GameEnvironment.AGENTS;
+
+        for (int e = slice; e < envs.length; e += threads)
+        {
+            rewards[e] = envs[e].step(actions, e * a);
+            dones[e]   = envs[e].isDone();
+
+            if (dones[e]) resetOne(e);
+            else envs[e].copyObservation(planes, e * GameEnvironment.PLANES * GameEnvironment.WORDS,
+                                         agents, e * a);
+        }
+    }
+}